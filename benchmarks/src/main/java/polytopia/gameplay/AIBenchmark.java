@@ -0,0 +1,40 @@
+package polytopia.gameplay;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+/** AI::CommandUnitActions for one player turn.
+	It moves units around, so every measurement gets a freshly played mid-game
+	state, and is timed as a single shot. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 20)
+@Fork(1)
+public class AIBenchmark {
+
+	@Param({"18"})
+	public int mapSize;
+
+	@Param({"20"})
+	public int turns;
+
+	private GameState state;
+	private int seed = 0;
+
+	@Setup(Level.Iteration)
+	public void setup() {
+		state = MidGame.create(mapSize, seed++, turns);
+		state.getAI().doSleep = 0;
+		MidGame.startTurn(state);
+	}
+
+	@Benchmark
+	public GameState commandUnitActions() {
+		state.getAI().remainStars = state.getCurrentPlayer().getStars();
+		state.getAI().CommandUnitActions(state.getCurrentPlayer().getPlayerId());
+		return state;
+	}
+}
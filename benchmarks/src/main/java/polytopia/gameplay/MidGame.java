@@ -0,0 +1,22 @@
+package polytopia.gameplay;
+
+/** Builds reproducible mid-game GameStates for the benchmarks.
+	A fresh map only has one unit per player and a single city, which
+	is not representative of where the gameplay code spends its time. */
+public class MidGame {
+
+	public static final String[] FACTIONS = {"Xinxi", "Imperius", "Bardur"};
+
+	/* A headless game on a MAPSIZE DRYLAND map, played by the bots for TURNS turns. 
+	   The returned state is at the start of player 0's turn. */
+	public static GameState create(int mapSize, int seed, int turns) {
+		GameState state = new GameState(mapSize, seed, "DRYLAND", FACTIONS, true);
+		state.simulate(turns);
+		return state;
+	}
+
+	/* Start player 0's turn, so that its units are movable again. */
+	public static void startTurn(GameState state) {
+		new ActionStartTurn().apply(state.getCurrentPlayer());
+	}
+}
@@ -0,0 +1,35 @@
+package polytopia.gameplay;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+/** Player::getBoundary, which Render recomputes for every player on every frame. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PlayerBenchmark {
+
+	@Param({"18"})
+	public int mapSize;
+
+	@Param({"20"})
+	public int turns;
+
+	private Player[] players;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		players = MidGame.create(mapSize, 42, turns).getPlayers();
+	}
+
+	@Benchmark
+	public void getBoundary(Blackhole bh) {
+		for (Player player : players)
+			bh.consume(player.getBoundary(players[0]));
+	}
+}
@@ -0,0 +1,55 @@
+package polytopia.gameplay;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+/** TileMap::getSurroundings over a whole map, and MapGenerator::generate. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TileMapBenchmark {
+
+	@Param({"18", "64", "256"})
+	public int size;
+
+	/* A MapGenerator.MapType. JMH generates its code in a subpackage,
+	   which cannot see the package-private MapGenerator. */
+	@Param({"DRYLAND", "ARCHIPELAGO"})
+	public String mapTypeName;
+
+	private MapGenerator.MapType mapType;
+	private Tile[][] grid;
+	private int seed;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		mapType = MapGenerator.MapType.valueOf(mapTypeName);
+		grid = MapGenerator.generate(size, 42, mapType, newPlayers());
+	}
+
+	/* generate() hands out capitals, so every map needs fresh players. */
+	private static Player[] newPlayers() {
+		Player[] players = new Player[MidGame.FACTIONS.length];
+		for (int i = 0; i < players.length; i++)
+			players[i] = new Player(null, MidGame.FACTIONS[i], i, true);
+		return players;
+	}
+
+	@Benchmark
+	public Tile[][] generate() {
+		return MapGenerator.generate(size, seed++, mapType, newPlayers());
+	}
+
+	/* Range 2 is the vision of a unit, and the outer ring of a city. */
+	@Benchmark
+	public void getSurroundings(Blackhole bh) {
+		for (int x = 0; x < size; x++)
+			for (int y = 0; y < size; y++)
+				bh.consume(TileMap.getSurroundings(grid, x, y, 2));
+	}
+}
@@ -0,0 +1,47 @@
+package polytopia.gameplay;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+/** Unit::getMovableTiles and Unit::getActions, for every unit on a mid-game map.
+	Both are queried for every unit on every AI turn, and on every click in the GameWindow. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UnitBenchmark {
+
+	@Param({"18"})
+	public int mapSize;
+
+	@Param({"20"})
+	public int turns;
+
+	private ArrayList<Unit> units;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		GameState state = MidGame.create(mapSize, 42, turns);
+		MidGame.startTurn(state);
+		units = new ArrayList<>();
+		for (Player player : state.getPlayers())
+			units.addAll(player.getUnits());
+	}
+
+	@Benchmark
+	public void getMovableTiles(Blackhole bh) {
+		for (Unit unit : units)
+			bh.consume(unit.getMovableTiles());
+	}
+
+	@Benchmark
+	public void getActions(Blackhole bh) {
+		for (Unit unit : units)
+			bh.consume(unit.getActions());
+	}
+}
@@ -0,0 +1,65 @@
+package polytopia.graphics;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import polytopia.gameplay.Game;
+import polytopia.gameplay.Tile;
+
+/** Render::render of a whole frame into an offscreen BufferedImage.
+    The human player sees the entire map, so that no tile is drawn as fog.
+    Render and Texture are static, so the map size is fixed per fork.
+    Only the tiles in the viewport are drawn, so the frame cost should not
+    grow with the map size. The terrain comes from the cached TerrainLayer
+    after the first frame; touchTerrain() also compares every tile with it. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RenderBenchmark {
+
+    @Param({"18", "64", "256"})
+    public int mapSize;
+
+    @Param({"1280"})
+    public int width;
+
+    @Param({"800"})
+    public int height;
+
+    private BufferedImage frame;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Game.start(mapSize, 42, "DRYLAND", new String[]{"Xinxi", "Imperius", "Bardur"}, null);
+        for (Tile[] row : Game.getMap().getGrid())
+            for (Tile tile : row)
+                Game.getHumanPlayer().addVision(tile);
+
+        frame = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+    }
+
+    /* A new Graphics2D per frame, clipped to the frame, like a repaint:
+       Render::render() applies the camera transform to it, which would otherwise
+       pile up, and offscreen Graphics2Ds are otherwise unbounded. */
+    @Benchmark
+    public BufferedImage render() {
+        Graphics2D g2d = frame.createGraphics();
+        g2d.setClip(0, 0, width, height);
+        Render.render(g2d);
+        g2d.dispose();
+        return frame;
+    }
+
+    /* A frame after a Consequence, which changed nothing. */
+    @Benchmark
+    public BufferedImage renderTouched() {
+        Render.touchTerrain();
+        return render();
+    }
+}
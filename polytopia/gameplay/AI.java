@@ -2,7 +2,6 @@ package polytopia.gameplay;
 
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collections;
 
 
 import polytopia.gameplay.Player.Tech;
@@ -40,57 +39,142 @@ class Actions{
 	}
 }
 
-class KnapsackItem{
-	int totalReward;
-	int cost;
-	public KnapsackItem(){
-		totalReward = 0;
-		cost = 0;
+/** 0/1 knapsack solver shared by the AI phases.
+	Items are added in groups, of which at most one item is picked; plain 0/1
+	knapsack is one item per group. best[j] is the max reward spending exactly
+	j stars, kept in a 1-D array that is rolled over group by group. Picks are
+	recorded as one bit per (item, stars), so the arrays are sized to the actual
+	problem, and reused across turns. */
+class Knapsack {
+	private static final int NONE = -100000;
+
+	private int budget;
+	private int[] best = new int[0];
+	private int[] before = new int[0];
+
+	private int items, groups;
+	private int[] rewards = new int[16];
+	private int[] costs = new int[16];
+	private int[] groupStart = new int[16];
+	/* Bit item*(budget+1)+j: item improved best[j] within its group. */
+	private long[] taken = new long[0];
+
+	/* Start a new problem, spending at most BUDGET stars. */
+	void reset(int budget) {
+		Arrays.fill(taken, 0, Math.min(taken.length, words(items)), 0L);
+		this.budget = Math.max(budget, 0);
+		this.items = 0;
+		this.groups = 0;
+		if (best.length < this.budget + 1) {
+			best = new int[this.budget + 1];
+			before = new int[this.budget + 1];
+		}
+		Arrays.fill(best, 0, this.budget + 1, NONE);
+		best[0] = 0;
+	}
+
+	private int words(int itemCount) {
+		return (int)(((long)itemCount * (budget + 1) + 63) >>> 6);
+	}
+
+	/* Start a group of items, of which at most one is picked. */
+	void beginGroup() {
+		if (groups == groupStart.length)
+			groupStart = Arrays.copyOf(groupStart, 2 * groups);
+		groupStart[groups++] = items;
+		System.arraycopy(best, 0, before, 0, budget + 1);
 	}
-	public KnapsackItem(int t, int c){
-		totalReward = t;
-		cost = c;
+
+	/* Add an item to the current group. Returns its index. */
+	int addItem(int reward, int cost) {
+		if (items == rewards.length) {
+			rewards = Arrays.copyOf(rewards, 2 * items);
+			costs = Arrays.copyOf(costs, 2 * items);
+		}
+		if (taken.length < words(items + 1))
+			taken = Arrays.copyOf(taken, Math.max(words(items + 1), 2 * taken.length));
+
+		int item = items++;
+		rewards[item] = reward;
+		costs[item] = cost;
+		long base = (long)item * (budget + 1);
+		for (int j = budget; j >= cost; j--) {
+			if (before[j - cost] + reward > best[j]) {
+				best[j] = before[j - cost] + reward;
+				taken[(int)((base + j) >>> 6)] |= 1L << ((base + j) & 63);
+			}
+		}
+		return item;
+	}
+
+	/* Add an item in a group of its own. Returns its index. */
+	int addSingle(int reward, int cost) {
+		beginGroup();
+		return addItem(reward, cost);
 	}
-	public void setValue(int t,int c){
-		totalReward = t;
-		cost = c;
+
+	int getCost(int item) {return costs[item];}
+
+	/* Pick the best spending in [0, LIMIT), lowest on ties. Returns the picked 
+	   items, last group first. */
+	int[] solve(int limit) {
+		int maxReward = -1;
+		int spot = 0;
+		for (int j = 0; j < Math.min(limit, budget + 1); j++) {
+			if (maxReward < best[j]) {
+				maxReward = best[j];
+				spot = j;
+			}
+		}
+
+		int[] picked = new int[groups];
+		int count = 0;
+		for (int g = groups - 1; g >= 0; g--) {
+			int end = g + 1 < groups ? groupStart[g + 1] : items;
+			// The last item to improve the spot within the group is the one picked
+			for (int item = end - 1; item >= groupStart[g]; item--) {
+				long bit = (long)item * (budget + 1) + spot;
+				if ((taken[(int)(bit >>> 6)] & (1L << (bit & 63))) != 0) {
+					picked[count++] = item;
+					spot -= costs[item];
+					break;
+				}
+			}
+		}
+		return Arrays.copyOf(picked, count);
 	}
 }
 
 public class AI {
-    public static int doSleep = 300;
-	public static int remainStars;
-	public static int knapsack[][];
-	public static int recordItem[][];
-	public static KnapsackItem itemList[];
-	public static int tempKnapsack[][];
-	public static int vision[] = {0, 0, 0, 0};
-	public static int notChanged[] = {0, 0, 0, 0};
-	public static int value[][];
-	public static int used[][];
-	public static int size;
-	public static int extraValueForCommand;
-	static{
-		size = Game.map.getSize();
-		knapsack = new int[305][1005];
-		tempKnapsack = new int[305][1005];
-		recordItem = new int[305][1005];
-		itemList =  new KnapsackItem[1005];
-        for (int i = 0; i < 1005; i++)
-            itemList[i] = new KnapsackItem();
+	private GameState state;
+    public int doSleep = 300;
+	public int remainStars;
+	private Knapsack knapsack = new Knapsack();
+	public int vision[];
+	public int notChanged[];
+	public int value[][];
+	public int used[][];
+	public int size;
+	public int extraValueForCommand;
 
+	/* Scratch buffers are per game, so that games can be played in parallel. */
+	public AI(GameState state){
+		this.state = state;
+		size = state.getMap().getSize();
+		vision = new int[state.getPlayers().length];
+		notChanged = new int[state.getPlayers().length];
 		value = new int[size][size];
 		used = new int[size][size];
 		extraValueForCommand = 2;
 	}
-	public static void GainStarActions(int playerId){
-		Player p = Game.players[playerId];
+	public void GainStarActions(int playerId){
+		Player p = state.getPlayers()[playerId];
 		for(City c : p.getCities())
 			for(Tile t : c.getTerritory()) {
                 if (t.getVariation() == null)
                     continue;
                 ArrayList<Action> shuffleActions = new ArrayList<>(Arrays.asList(t.getVariation().getActions()));
-                Collections.shuffle(shuffleActions);
+                state.shuffle(shuffleActions);
                 for(Action a : shuffleActions){
 					if(a.isPerformableTo(p) == false)
 						continue;
@@ -110,17 +194,10 @@ public class AI {
             }
 					
 	}
-	public static void UnlockTechActions(int playerId){
-		Player p = Game.players[playerId];
-		int maxStarUse = remainStars * (Game.getTurn() + 29)/ (3 * Game.getTurn() + 27);
-		int itemnum = 0;
-		for(int i = 0; i <= 1000; i ++){
-            for(int j = 0; j <= 100; j ++){
-                knapsack[j][i] = -100000;
-			    recordItem[j][i] = -1;
-            }
-			itemList[i].setValue(0,0);
-		}
+	public void UnlockTechActions(int playerId){
+		Player p = state.getPlayers()[playerId];
+		int maxStarUse = remainStars * (state.getTurn() + 29)/ (3 * state.getTurn() + 27);
+		knapsack.reset(maxStarUse);
 		int early = 1;
 		int earlyAddtition = 5;
 		int lowTech = 0;
@@ -265,48 +342,21 @@ public class AI {
 						if(t.getUnit() != null && t.getUnit().getOwnerPlayer() != p)
 							cnt ++;
 			}
-			itemList[itemnum++].setValue(cnt, te.getCost(p));
-            System.out.printf("%s %d\n", te.toString(), cnt);
-		}
-        knapsack[0][0] = 0;
-		for(int i = 0; i < itemnum; i ++){
-            //System.out.printf ("i %d %d %d\n", i, itemList[i].cost, maxStarUse);
-			for(int j = maxStarUse; j >= 0; j --){
-                knapsack[i+1][j] = knapsack[i][j];
-                recordItem[i+1][j] = -1;
-                if(j < itemList[i].cost)
-                    continue;
-                //System.out.printf ("j %d\n", j);
-				if(knapsack[i][j - itemList[i].cost] + itemList[i].totalReward > knapsack[i+1][j]){
-					knapsack[i+1][j] = knapsack[i][j - itemList[i].cost] + itemList[i].totalReward;
-					recordItem[i+1][j] = i;
-				}
-			}
-		}
-		int maxKnapsackReward = -1;
-		int maxKnapsackSpot = 0;
-		for(int i = 0; i < maxStarUse; i ++){
-			if(maxKnapsackReward < knapsack[itemnum][i]){
-				maxKnapsackReward = knapsack[itemnum][i];
-				maxKnapsackSpot = i;
-			}
+			knapsack.addSingle(cnt, te.getCost(p));
+            if(doSleep > 0) System.out.printf("%s %d\n", te.toString(), cnt);
 		}
 
-		for(int i = itemnum; i > 0; i --){
-			int techId = recordItem[i][maxKnapsackSpot];
-            if (techId == -1)
-                continue;
+		for(int techId : knapsack.solve(maxStarUse)){
 			Tech tech = (Tech.getUnlockableTechs(p)).get(techId);
 			Action a = new ActionUnlockTech(tech);
             if (a.isPerformableTo(p))
                 a.apply(p);
             if(doSleep > 0) {System.out.println(a.toString());try{Thread.sleep(doSleep);}catch(Exception e){}}
-			maxKnapsackSpot = maxKnapsackSpot - itemList[techId].cost;
 		}
 	}
-	public static void CommandUnitActions(int playerId){
+	public void CommandUnitActions(int playerId){
 		Actions actionList = new Actions();
-		Player p = Game.players[playerId];
+		Player p = state.getPlayers()[playerId];
 		for(Unit u : p.getUnits())
 			for(Action a : u.getActions())
 				if(a instanceof ActionUnitUpgrade){
@@ -346,7 +396,7 @@ public class AI {
 				for(Tile t : p.getVision()){
                     if (used[t.getX()][t.getY()] == 0)
                         continue;
-					for(Tile t_1 : TileMap.getInnerRing(Game.map.getGrid(), t.getX(), t.getY())){
+					for(Tile t_1 : TileMap.getInnerRing(state.getMap().getGrid(), t.getX(), t.getY())){
 						int x = t_1.getX();
 						int y = t_1.getY();
 						if(used[x][y] == 0){
@@ -376,7 +426,7 @@ public class AI {
 						for(int i = 0; i < size; i ++){
 							for(int j = 0; j < size; j ++){
 								if(Math.max(Math.abs(x - i), Math.abs(y - j)) == u.getRange()){
-									Tile t_1 = Game.map.getGrid()[i][j];
+									Tile t_1 = state.getMap().getGrid()[i][j];
 									if(t_1.hasEnemy(p)){
 										actionvalue += extraValueForCommand;
 										flag = 1;
@@ -413,25 +463,17 @@ public class AI {
 					break;
 				}			
 	}
-	public static void DevelopEconomyActions(int playerId){
+	public void DevelopEconomyActions(int playerId){
 		Actions actionList = new Actions();
-		Player p = Game.players[playerId];
+		Player p = state.getPlayers()[playerId];
 		int maxValidationUse = remainStars;
-		int itemnum = 0;
-		for(int i = 0; i <= 1000; i ++){
-            for(int j = 0; j <= 100; j ++){
-                knapsack[j][i] = -100000;
-			    recordItem[j][i]= -1;
-            }
-			itemList[i].setValue(0,0);
-		}
-		knapsack[0][0] = 0;
+		knapsack.reset(maxValidationUse);
 		for(City c : p.getCities())
 			for(Tile t : c.getTerritory()) {
                 if (t.getVariation() == null)
                     continue;
                 ArrayList<Action> shuffleActions = new ArrayList<>(Arrays.asList(t.getVariation().getActions()));
-                Collections.shuffle(shuffleActions);
+                state.shuffle(shuffleActions);
                 for(Action a : shuffleActions){
 					if(a.isPerformableTo(p) == false)
 						continue;
@@ -439,62 +481,30 @@ public class AI {
 					int totalReward = 0;
 					int cost = a.getCost();
 					for(Consequence con : a.getConsequences(p)){
-						if(con instanceof ConseqGainStars){
+						if(doSleep > 0 && con instanceof ConseqGainStars){
 							System.out.println("still have consequences that add stars: " + con.toString());
 						}
 						totalReward = totalReward + con.getReward();
 					}
-					itemList[itemnum++].setValue(totalReward, cost);
+					knapsack.addSingle(totalReward, cost);
 				}
             }
-		for(int i = 0; i < itemnum; i ++){
-			for(int j = maxValidationUse; j >= 0; j --){
-                knapsack[i+1][j] = knapsack[i][j];
-                recordItem[i+1][j] = -1;
-                if(j < itemList[i].cost)
-                    continue;
-				if(knapsack[i][j - itemList[i].cost] + itemList[i].totalReward > knapsack[i+1][j]){
-					knapsack[i+1][j] = knapsack[i][j - itemList[i].cost] + itemList[i].totalReward;
-					recordItem[i+1][j] = i;
-				}
-			}
-		}
-		int maxKnapsackReward = -1;
-		int maxKnapsackSpot = 0;
-		for(int i = 0; i < maxValidationUse; i ++){
-			if(maxKnapsackReward < knapsack[itemnum][i]){
-				maxKnapsackReward = knapsack[itemnum][i];
-				maxKnapsackSpot = i;
-			}
-		}
-		for(int i = itemnum; i > 0; i --){
-			int actionId = recordItem[i][maxKnapsackSpot];
-            if(actionId < 0)
-                continue;
+		for(int actionId : knapsack.solve(maxValidationUse)){
 			Action tempAction = actionList.getAction(actionId);
             if (tempAction.isPerformableTo(p))
 			    tempAction.apply(p);
             if(doSleep > 0) {System.out.printf("%s, %d\n", tempAction.toString(), actionId);try{Thread.sleep(doSleep);}catch(Exception e){}}
-			maxKnapsackSpot = maxKnapsackSpot - itemList[actionId].cost;
 		}
 
 
 		remainStars = p.getStars();
 		int maxTileUse = remainStars;
 		actionList.clear();
-		itemnum = 0;
-		for(int i = 0; i <= 1000; i ++){
-            for(int j = 0; j <= 100; j ++){
-                knapsack[j][i] = -100000;
-			    recordItem[j][i]= -1;
-            }
-			itemList[i].setValue(0,0);
-		}
-		knapsack[0][0] = 0;
+		knapsack.reset(maxTileUse);
 		for(City c : p.getCities())
 			for(Tile t : c.getTerritory()) {
                 ArrayList<Action> shuffleActions = new ArrayList<>(Arrays.asList(t.getActions()));
-                Collections.shuffle(shuffleActions);
+                state.shuffle(shuffleActions);
                 for(Action a : shuffleActions){
 					if(a instanceof ActionClearForest)
 						continue;
@@ -504,130 +514,83 @@ public class AI {
 					int totalReward = 0;
 					int cost = a.getCost();
 					for(Consequence con : a.getConsequences(p)){
-						if(con instanceof ConseqGainStars){
+						if(doSleep > 0 && con instanceof ConseqGainStars){
 							System.out.println("still have consequences that add stars: " + con.toString());
 						}
 						totalReward = totalReward + con.getReward();
 					}
-					itemList[itemnum++].setValue(totalReward, cost);
+					knapsack.addSingle(totalReward, cost);
 				}
             }
 
-		for(int i = 0; i < itemnum; i ++){
-			for(int j = maxTileUse; j >= 0; j --){
-                knapsack[i+1][j] = knapsack[i][j];
-                recordItem[i+1][j] = -1;
-                if(j < itemList[i].cost)
-                    continue;
-				if(knapsack[i][j - itemList[i].cost] + itemList[i].totalReward > knapsack[i+1][j]){
-					knapsack[i+1][j] = knapsack[i][j - itemList[i].cost] + itemList[i].totalReward;
-					recordItem[i+1][j] = i;
-				}
-			}
-		}
-		maxKnapsackReward = -1;
-		maxKnapsackSpot = 0;
-		for(int i = 0; i < maxTileUse; i ++){
-			if(maxKnapsackReward < knapsack[itemnum][i]){
-				maxKnapsackReward = knapsack[itemnum][i];
-				maxKnapsackSpot = i;
-			}
-		}
-		for(int i = itemnum; i > 0; i --){
-			int actionId = recordItem[i][maxKnapsackSpot];
-            if(actionId == -1)
-                continue;
+		for(int actionId : knapsack.solve(maxTileUse)){
 			Action tempAction = actionList.getAction(actionId);
             if (tempAction.isPerformableTo(p))
 			    tempAction.apply(p);
             if(doSleep > 0) {System.out.printf("%s, %d\n", tempAction.toString(), actionId);try{Thread.sleep(doSleep);}catch(Exception e){}}
-			maxKnapsackSpot = maxKnapsackSpot - itemList[actionId].cost;
 		}
 	}
-	public static void TrainUnitActions(int playerId){
+	public void TrainUnitActions(int playerId){
 		Actions actionList = new Actions();
-		Player p = Game.players[playerId];
+		Player p = state.getPlayers()[playerId];
 		int maxStarUse = remainStars * 2 / (3 + Math.min(p.getUnits().size()/5, 3));
 
-		int itemnum = 0;
-		for(int i = 0; i <= 1000; i ++){
-            for(int j = 0; j <= 100; j ++){
-                knapsack[j][i] = -100000;
-			    tempKnapsack[j][i] = -100000;
-			    recordItem[j][i] = -1;
-            }
-			itemList[i].setValue(0,0);
-		}
-		knapsack[0][0] = 0;
-        int cntcities = 0;
+		// At most one unit is trained per city
+		knapsack.reset(maxStarUse);
 		for(City c : p.getCities())
 		{
-            for(int j = maxStarUse; j >= 0; j --){
-                knapsack[cntcities+1][j] = knapsack[cntcities][j];
-                recordItem[cntcities+1][j] = -1;
-            }
+			knapsack.beginGroup();
 			for(Action a : c.getActions())
 				if(a.isPerformableTo(p)){
 					actionList.addOne(a);
 					int totalReward = 0;
 					int cost = a.getCost();
 					for(Consequence con : a.getConsequences(p)){
-						if(con instanceof ConseqGainStars){
+						if(doSleep > 0 && con instanceof ConseqGainStars){
 							System.out.println("still have consequences that add stars: " + con.toString());
 						}
 						totalReward = totalReward + con.getReward();
 					}
-					itemList[itemnum++].setValue(totalReward, cost);
-					int i = itemnum - 1;
-					for(int j = maxStarUse; j >= itemList[i].cost; j --){
-						if(knapsack[cntcities][j - itemList[i].cost] + itemList[i].totalReward > knapsack[cntcities + 1][j]){
-							knapsack[cntcities+1][j] = knapsack[cntcities][j - itemList[i].cost] + itemList[i].totalReward;
-							recordItem[cntcities+1][j] = i;
-						}
-					}
+					knapsack.addItem(totalReward, cost);
 				}
-            cntcities++;
-		}
-		int maxKnapsackReward = -1;
-		int maxKnapsackSpot = 0;
-		for(int i = 0; i < maxStarUse; i ++){
-			if(maxKnapsackReward < knapsack[cntcities][i]){
-				maxKnapsackReward = knapsack[cntcities][i];
-				maxKnapsackSpot = i;
-			}
 		}
-		for(int i = cntcities; i > 0; i --){
-			int actionId = recordItem[i][maxKnapsackSpot];
-            if(actionId == -1)
-                continue;
+		for(int actionId : knapsack.solve(maxStarUse)){
 			Action tempAction = actionList.getAction(actionId);
             if (tempAction.isPerformableTo(p))
 			    tempAction.apply(p);
             if(doSleep > 0) {System.out.println(tempAction.toString());try{Thread.sleep(doSleep);}catch(Exception e){}}
-			maxKnapsackSpot = maxKnapsackSpot - itemList[actionId].cost;
 		}
 	}
-	public static void decideActionsForAI(int playerId){
-		remainStars = Game.players[playerId].getStars();
-		GainStarActions(playerId);
-		remainStars = Game.players[playerId].getStars();
-		UnlockTechActions(playerId);
-		remainStars = Game.players[playerId].getStars();
-		CommandUnitActions(playerId);
-		remainStars = Game.players[playerId].getStars();
-		DevelopEconomyActions(playerId);
-		remainStars = Game.players[playerId].getStars();
-		TrainUnitActions(playerId);
+	/* The phases of a turn, in the order decideActionsForAI() plays them. */
+	public static final int GAIN_STARS = 0, UNLOCK_TECH = 1, COMMAND_UNITS = 2, DEVELOP_ECONOMY = 3, TRAIN_UNITS = 4;
+	public static final int PHASES = 5;
 
-        System.out.printf ("Turn %d: ", Game.getTurn());
-        for (Tech tech : Game.players[playerId].getTechs()){
-            System.out.printf ("%s, ", tech.toString());
+	/* Play one PHASE of the turn of the player, e.g. for MCTSBot to pick the phases. */
+	public void decidePhase(int phase, int playerId){
+		remainStars = state.getPlayers()[playerId].getStars();
+		switch(phase){
+			case GAIN_STARS: GainStarActions(playerId); break;
+			case UNLOCK_TECH: UnlockTechActions(playerId); break;
+			case COMMAND_UNITS: CommandUnitActions(playerId); break;
+			case DEVELOP_ECONOMY: DevelopEconomyActions(playerId); break;
+			case TRAIN_UNITS: TrainUnitActions(playerId); break;
+		}
+	}
+	public void decideActionsForAI(int playerId){
+		for(int phase = 0; phase < PHASES; phase ++)
+			decidePhase(phase, playerId);
+
+        if(doSleep > 0) {
+            System.out.printf ("Turn %d: ", state.getTurn());
+            for (Tech tech : state.getPlayers()[playerId].getTechs()){
+                System.out.printf ("%s, ", tech.toString());
+            }
+            System.out.println();
         }
-        System.out.println();
 
         if(doSleep > 0) {System.out.println();try{Thread.sleep(doSleep);}catch(Exception e){}}
         Action a = new ActionEndTurn();
-        a.apply(Game.players[playerId]);      
+        a.apply(state.getPlayers()[playerId]);      
         
 	}
 }
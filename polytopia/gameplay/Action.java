@@ -19,8 +19,36 @@ public abstract class Action {
 	   Note that this method does not apply the consequences. */
 	public abstract ArrayList<Consequence> getConsequences(Player player);
 
-	/* Apply this ACTION. */
-	public abstract void apply(Player player);
+	/* Apply this ACTION, after logging it to the Journal of the game, if any.
+	   The randomness of the game is reseeded first, see GameState::nextAction().
+	   If it throws, it is dropped from the Journal and does not count as applied,
+	   so that a replay of the Journal draws the same as the game. */
+	public final void apply(Player player) {
+		GameState state = player.getGameState();
+		long applied = state.getApplied();
+		state.nextAction();
+		Journal journal = state.getJournal();
+		long start = journal == null ? 0 : journal.begin(this, player);
+		boolean performed = false;
+		try {
+			perform(player);
+			performed = true;
+		} finally {
+			if (!performed)
+				state.dropActions(applied);
+			if (journal != null)
+				journal.end(start, performed);
+		}
+	}
+
+	/* Apply this ACTION, see apply(). */
+	protected abstract void perform(Player player);
+
+	/* The Tiles this ACTION is performed on and towards, and e.g. the Tech it unlocks,
+	   with which the Journal finds it again in a replayed game. */
+	Tile getSubject() {return null;}
+	Tile getTarget() {return null;}
+	int getArgument() {return 0;}
 
 	public int cost = 0;
 	public int getCost() {return cost;}
@@ -77,11 +105,13 @@ class ActionHarvestFruit extends Action {
 		return history;
 	}
 
-	public void apply(Player player) {
+	protected void perform(Player player) {
 		player.setStars(player.getStars() - 2);
-		Consequence.apply (this.getConsequences(player));
+		Consequence.apply (player.getGameState(), this.getConsequences(player));
 	}
 
+	Tile getSubject() {return subject.getOwnerTile();}
+
 	@Override
 	public String toString() {
 		return "Harvest Fruit";
@@ -123,11 +153,13 @@ class ActionFishing extends Action {
 		return history;
 	}
 
-	public void apply(Player player) {
+	protected void perform(Player player) {
 		player.setStars(player.getStars() - 2);
-		Consequence.apply (this.getConsequences(player));
+		Consequence.apply (player.getGameState(), this.getConsequences(player));
 	}
 
+	Tile getSubject() {return subject.getOwnerTile();}
+
 	@Override
 	public String toString() {
 		return "Fishing";
@@ -170,11 +202,13 @@ class ActionHunting extends Action {
 		return history;
 	}
 
-	public void apply(Player player) {
+	protected void perform(Player player) {
 		player.setStars(player.getStars() - 2);
-		Consequence.apply (this.getConsequences(player));
+		Consequence.apply (player.getGameState(), this.getConsequences(player));
 	}
 
+	Tile getSubject() {return subject.getOwnerTile();}
+
 	@Override
 	public String toString() {
 		return "Hunting";
@@ -218,11 +252,13 @@ class ActionFarming extends Action {
 		return history;
 	}
 
-	public void apply(Player player) {
+	protected void perform(Player player) {
 		player.setStars(player.getStars() - 5);
-		Consequence.apply (this.getConsequences(player));
+		Consequence.apply (player.getGameState(), this.getConsequences(player));
 	}
 
+	Tile getSubject() {return subject.getOwnerTile();}
+
 	@Override
 	public String toString() {
 		return "Farming";
@@ -266,11 +302,13 @@ class ActionMining extends Action {
 		return history;
 	}
 
-	public void apply(Player player) {
+	protected void perform(Player player) {
 		player.setStars(player.getStars() - 5);
-		Consequence.apply (this.getConsequences(player));
+		Consequence.apply (player.getGameState(), this.getConsequences(player));
 	}
 
+	Tile getSubject() {return subject.getOwnerTile();}
+
 	@Override
 	public String toString() {
 		return "Mining";
@@ -312,10 +350,12 @@ class ActionWhaling extends Action {
 		return history;
 	}
 
-	public void apply(Player player) {
-		Consequence.apply (this.getConsequences(player));
+	protected void perform(Player player) {
+		Consequence.apply (player.getGameState(), this.getConsequences(player));
 	}
 
+	Tile getSubject() {return subject.getOwnerTile();}
+
 	@Override
 	public String toString() {
 		return "Whaling";
@@ -361,11 +401,13 @@ class ActionBuildLumberHut extends Action {
 		return history;
 	}
 
-	public void apply(Player player) {
+	protected void perform(Player player) {
 		player.setStars(player.getStars() - 2);
-		Consequence.apply (this.getConsequences(player));
+		Consequence.apply (player.getGameState(), this.getConsequences(player));
 	}
 
+	Tile getSubject() {return subject;}
+
 	@Override
 	public String toString() {
 		return "Build Lumber Hut";
@@ -412,11 +454,13 @@ class ActionBuildPort extends Action {
 		return history;
 	}
 
-	public void apply(Player player) {
+	protected void perform(Player player) {
 		player.setStars(player.getStars() - 10);
-		Consequence.apply (this.getConsequences(player));
+		Consequence.apply (player.getGameState(), this.getConsequences(player));
 	}
 
+	Tile getSubject() {return subject;}
+
 	@Override
 	public String toString() {
 		return "Build Port";
@@ -448,7 +492,7 @@ class ActionBuildSawmill extends Action {
 				return false;
 		}
 		
-		ArrayList<Tile> adjTile = TileMap.getInnerRing(Game.map.getGrid(), subject.getX(), subject.getY());
+		ArrayList<Tile> adjTile = TileMap.getInnerRing(player.getGameState().getMap().getGrid(), subject.getX(), subject.getY());
 		for (Tile t : adjTile)
 			if (t.isOwnedBy(player)
 				&& t.getVariation() instanceof Improvement
@@ -469,11 +513,13 @@ class ActionBuildSawmill extends Action {
 		return false;
 	}
 
-	public void apply(Player player) {
+	protected void perform(Player player) {
 		player.setStars(player.getStars() - 5);
-		Consequence.apply (this.getConsequences(player));
+		Consequence.apply (player.getGameState(), this.getConsequences(player));
 	}
 
+	Tile getSubject() {return subject;}
+
 	@Override
 	public String toString() {
 		return "Build Sawmill";
@@ -482,7 +528,7 @@ class ActionBuildSawmill extends Action {
 	public ArrayList<Consequence> getConsequences(Player player) {
 
 		int level = 0;
-		ArrayList<Tile> adjTile = TileMap.getInnerRing(Game.map.getGrid(), subject.getX(), subject.getY());
+		ArrayList<Tile> adjTile = TileMap.getInnerRing(player.getGameState().getMap().getGrid(), subject.getX(), subject.getY());
 		for (Tile t : adjTile)
 			if (t.isOwnedBy(player)
 				&& t.getVariation() instanceof Improvement
@@ -526,7 +572,7 @@ class ActionBuildForge extends Action {
 				return false;
 		}
 		
-		ArrayList<Tile> adjTile = TileMap.getInnerRing(Game.map.getGrid(), subject.getX(), subject.getY());
+		ArrayList<Tile> adjTile = TileMap.getInnerRing(player.getGameState().getMap().getGrid(), subject.getX(), subject.getY());
 		for (Tile t : adjTile)
 			if (t.isOwnedBy(player)
 				&& t.getVariation() instanceof Improvement
@@ -550,7 +596,7 @@ class ActionBuildForge extends Action {
 	public ArrayList<Consequence> getConsequences(Player player) {
 		
 		int level = 0;
-		ArrayList<Tile> adjTile = TileMap.getInnerRing(Game.map.getGrid(), subject.getX(), subject.getY());
+		ArrayList<Tile> adjTile = TileMap.getInnerRing(player.getGameState().getMap().getGrid(), subject.getX(), subject.getY());
 		for (Tile t : adjTile)
 			if (t.isOwnedBy(player)
 				&& t.getVariation() instanceof Improvement
@@ -568,11 +614,13 @@ class ActionBuildForge extends Action {
 		return history;
 	}
 
-	public void apply(Player player) {
+	protected void perform(Player player) {
 		player.setStars(player.getStars() - 5);
-		Consequence.apply (this.getConsequences(player));
+		Consequence.apply (player.getGameState(), this.getConsequences(player));
 	}
 
+	Tile getSubject() {return subject;}
+
 	@Override
 	public String toString() {
 		return "Build Forge";
@@ -604,7 +652,7 @@ class ActionBuildWindmill extends Action {
 				return false;
 		}
 		
-		ArrayList<Tile> adjTile = TileMap.getInnerRing(Game.map.getGrid(), subject.getX(), subject.getY());
+		ArrayList<Tile> adjTile = TileMap.getInnerRing(player.getGameState().getMap().getGrid(), subject.getX(), subject.getY());
 		for (Tile t : adjTile)
 			if (t.isOwnedBy(player)
 				&& t.getVariation() instanceof Improvement
@@ -628,7 +676,7 @@ class ActionBuildWindmill extends Action {
 	public ArrayList<Consequence> getConsequences(Player player) {
 		
 		int level = 0;
-		ArrayList<Tile> adjTile = TileMap.getInnerRing(Game.map.getGrid(), subject.getX(), subject.getY());
+		ArrayList<Tile> adjTile = TileMap.getInnerRing(player.getGameState().getMap().getGrid(), subject.getX(), subject.getY());
 		for (Tile t : adjTile)
 			if (t.isOwnedBy(player)
 				&& t.getVariation() instanceof Improvement
@@ -646,11 +694,13 @@ class ActionBuildWindmill extends Action {
 		return history;
 	}
 
-	public void apply(Player player) {
+	protected void perform(Player player) {
 		player.setStars(player.getStars() - 5);
-		Consequence.apply (this.getConsequences(player));
+		Consequence.apply (player.getGameState(), this.getConsequences(player));
 	}
 
+	Tile getSubject() {return subject;}
+
 	@Override
 	public String toString() {
 		return "Build Windmill";
@@ -682,7 +732,7 @@ class ActionBuildCustomsHouse extends Action {
 				return false;
 		}
 		
-		ArrayList<Tile> adjTile = TileMap.getInnerRing(Game.map.getGrid(), subject.getX(), subject.getY());
+		ArrayList<Tile> adjTile = TileMap.getInnerRing(player.getGameState().getMap().getGrid(), subject.getX(), subject.getY());
 		for (Tile t : adjTile)
 			if (t.isOwnedBy(player)
 				&& t.getVariation() instanceof Improvement
@@ -706,7 +756,7 @@ class ActionBuildCustomsHouse extends Action {
 	public ArrayList<Consequence> getConsequences(Player player) {
 		
 		int level = 0;
-		ArrayList<Tile> adjTile = TileMap.getInnerRing(Game.map.getGrid(), subject.getX(), subject.getY());
+		ArrayList<Tile> adjTile = TileMap.getInnerRing(player.getGameState().getMap().getGrid(), subject.getX(), subject.getY());
 		for (Tile t : adjTile)
 			if (t.isOwnedBy(player)
 				&& t.getVariation() instanceof Improvement
@@ -720,11 +770,13 @@ class ActionBuildCustomsHouse extends Action {
 		return history;
 	}
 
-	public void apply(Player player) {
+	protected void perform(Player player) {
 		player.setStars(player.getStars() - 5);
-		Consequence.apply (this.getConsequences(player));
+		Consequence.apply (player.getGameState(), this.getConsequences(player));
 	}
 
+	Tile getSubject() {return subject;}
+
 	@Override
 	public String toString() {
 		return "Build Customs House";
@@ -771,11 +823,13 @@ class ActionBuildTemple extends Action {
 		return history;
 	}
 
-	public void apply(Player player) {
+	protected void perform(Player player) {
 		player.setStars(player.getStars() - 10);
-		Consequence.apply (this.getConsequences(player));
+		Consequence.apply (player.getGameState(), this.getConsequences(player));
 	}
 
+	Tile getSubject() {return subject;}
+
 	@Override
 	public String toString() {
 		return "Build Temple";
@@ -821,11 +875,13 @@ class ActionBuildForestTemple extends Action {
 		return history;
 	}
 
-	public void apply(Player player) {
+	protected void perform(Player player) {
 		player.setStars(player.getStars() - 10);
-		Consequence.apply (this.getConsequences(player));
+		Consequence.apply (player.getGameState(), this.getConsequences(player));
 	}
 
+	Tile getSubject() {return subject;}
+
 	@Override
 	public String toString() {
 		return "Build Forest Temple";
@@ -871,11 +927,13 @@ class ActionBuildAquaTemple extends Action {
 		return history;
 	}
 
-	public void apply(Player player) {
+	protected void perform(Player player) {
 		player.setStars(player.getStars() - 10);
-		Consequence.apply (this.getConsequences(player));
+		Consequence.apply (player.getGameState(), this.getConsequences(player));
 	}
 
+	Tile getSubject() {return subject;}
+
 	@Override
 	public String toString() {
 		return "Build Aqua Temple";
@@ -921,11 +979,13 @@ class ActionBuildMountainTemple extends Action {
 		return history;
 	}
 
-	public void apply(Player player) {
+	protected void perform(Player player) {
 		player.setStars(player.getStars() - 10);
-		Consequence.apply (this.getConsequences(player));
+		Consequence.apply (player.getGameState(), this.getConsequences(player));
 	}
 
+	Tile getSubject() {return subject;}
+
 	@Override
 	public String toString() {
 		return "Build Mountain Temple";
@@ -968,10 +1028,12 @@ class ActionDestroyImprovement extends Action {
 		return history;
 	}
 
-	public void apply(Player player) {
-		Consequence.apply (this.getConsequences(player));
+	protected void perform(Player player) {
+		Consequence.apply (player.getGameState(), this.getConsequences(player));
 	}
 
+	Tile getSubject() {return subject.getOwnerTile();}
+
 	@Override
 	public String toString() {
 		return "Destroy";
@@ -1016,10 +1078,12 @@ class ActionClearForest extends Action {
 		return history;
 	}
 
-	public void apply(Player player) {
-		Consequence.apply (this.getConsequences(player));
+	protected void perform(Player player) {
+		Consequence.apply (player.getGameState(), this.getConsequences(player));
 	}
 
+	Tile getSubject() {return subject;}
+
 	@Override
 	public String toString() {
 		return "Clear Forest";
@@ -1062,11 +1126,13 @@ class ActionGrowForest extends Action {
 		return history;
 	}
 
-	public void apply(Player player) {
+	protected void perform(Player player) {
 		player.setStars(player.getStars() - 5);
-		Consequence.apply (this.getConsequences(player));
+		Consequence.apply (player.getGameState(), this.getConsequences(player));
 	}
 
+	Tile getSubject() {return subject;}
+
 	@Override
 	public String toString() {
 		return "Grow Forest";
@@ -1111,11 +1177,13 @@ class ActionBurnForest extends Action {
 		return history;
 	}
 
-	public void apply(Player player) {
+	protected void perform(Player player) {
 		player.setStars(player.getStars() - 5);
-		Consequence.apply (this.getConsequences(player));
+		Consequence.apply (player.getGameState(), this.getConsequences(player));
 	}
 
+	Tile getSubject() {return subject;}
+
 	@Override
 	public String toString() {
 		return "Burn Forest";
@@ -1147,11 +1215,13 @@ class ActionUnlockTech extends Action {
 		return history;
 	}
 
-	public void apply(Player player) {
+	protected void perform(Player player) {
 		player.setStars(player.getStars() - tech.getCost(player));
-		Consequence.apply (this.getConsequences(player));
+		Consequence.apply (player.getGameState(), this.getConsequences(player));
 	}
 
+	int getArgument() {return tech.ordinal();}
+
 	@Override
 	public String toString() {
 		return tech.toString();
@@ -1191,10 +1261,12 @@ class ActionUnitUpgrade extends Action {
 		return history;
 	}
 
-	public void apply(Player player) {
-		Consequence.apply (this.getConsequences(player));
+	protected void perform(Player player) {
+		Consequence.apply (player.getGameState(), this.getConsequences(player));
 	}
 
+	Tile getSubject() {return unit.getPosition();}
+
 	@Override
 	public String toString() {
 		return "Upgrade";
@@ -1228,10 +1300,13 @@ class ActionUnitMove extends Action {
 		return history;
 	}
 
-	public void apply(Player player) {
-		Consequence.apply (this.getConsequences(player));
+	protected void perform(Player player) {
+		Consequence.apply (player.getGameState(), this.getConsequences(player));
 	}
 
+	Tile getSubject() {return unit.getPosition();}
+	Tile getTarget() {return destination;}
+
 	@Override
 	public String toString() {
 		return unit.toString() + " moves";
@@ -1268,10 +1343,13 @@ class ActionUnitAttack extends Action {
 
 	public Tile getDestination() {return enemy.getPosition();}
 
-	public void apply(Player player) {
-		Consequence.apply (this.getConsequences(player));
+	protected void perform(Player player) {
+		Consequence.apply (player.getGameState(), this.getConsequences(player));
 	}
 
+	Tile getSubject() {return unit.getPosition();}
+	Tile getTarget() {return enemy.getPosition();}
+
 	@Override
 	public String toString() {
 		return unit.toString() + " attack " + enemy.toString();
@@ -1303,12 +1381,14 @@ class ActionUnitRecover extends Action {
 		return history;
 	}
 
-	public void apply(Player player) {
-		Consequence.apply (this.getConsequences(player));
+	protected void perform(Player player) {
+		Consequence.apply (player.getGameState(), this.getConsequences(player));
 		unit.setAttackable(false);
 		unit.setMovable(false);
 	}
 
+	Tile getSubject() {return unit.getPosition();}
+
 	@Override
 	public String toString() {
 		return "Recover";
@@ -1336,7 +1416,7 @@ class ActionUnitHeal extends Action {
 		ArrayList<Consequence> history = new ArrayList<Consequence>();
 
 		Tile center = unit.getPosition();
-		for (Tile tile : TileMap.getInnerRing(Game.map.getGrid(), center.getX(), center.getY())) {
+		for (Tile tile : TileMap.getInnerRing(player.getGameState().getMap().getGrid(), center.getX(), center.getY())) {
 			if (tile.hasAlly(player))
 				new ConseqUnitRecover(tile.getUnit(), 4).log(history);
 		}
@@ -1344,12 +1424,14 @@ class ActionUnitHeal extends Action {
 		return history;
 	}
 
-	public void apply(Player player) {
-		Consequence.apply (this.getConsequences(player));
+	protected void perform(Player player) {
+		Consequence.apply (player.getGameState(), this.getConsequences(player));
 		unit.setAttackable(false);
 		unit.setMovable(false);
 	}
 
+	Tile getSubject() {return unit.getPosition();}
+
 	@Override
 	public String toString() {
 		return "Heal Others";
@@ -1384,12 +1466,15 @@ class ActionUnitConvert extends Action {
 
 	public Tile getDestination() {return enemy.getPosition();}
 
-	public void apply(Player player) {
-		Consequence.apply (this.getConsequences(player));
+	protected void perform(Player player) {
+		Consequence.apply (player.getGameState(), this.getConsequences(player));
 		unit.setAttackable(false);
 		unit.setMovable(false);
 	}
 
+	Tile getSubject() {return unit.getPosition();}
+	Tile getTarget() {return enemy.getPosition();}
+
 	@Override
 	public String toString() {
 		return unit.toString() + " converts";
@@ -1425,10 +1510,12 @@ class ActionUnitDisband extends Action {
 		return history;
 	}
 
-	public void apply(Player player) {
-		Consequence.apply (this.getConsequences(player));
+	protected void perform(Player player) {
+		Consequence.apply (player.getGameState(), this.getConsequences(player));
 	}
 
+	Tile getSubject() {return unit.getPosition();}
+
 	@Override
 	public String toString() {
 		return "Disband Unit";
@@ -1463,12 +1550,14 @@ class ActionUpgradeBoat extends Action {
 		return history;
 	}
 
-	public void apply(Player player) {
-		Consequence.apply (this.getConsequences(player));
+	protected void perform(Player player) {
+		Consequence.apply (player.getGameState(), this.getConsequences(player));
 		int stars = unit.getOwnerPlayer().getStars();
 		unit.getOwnerPlayer().setStars(stars - 5);
 	}
 
+	Tile getSubject() {return unit.getPosition();}
+
 	@Override
 	public String toString() {
 		return "Upgrade to ship";
@@ -1503,12 +1592,14 @@ class ActionUpgradeShip extends Action {
 		return history;
 	}
 
-	public void apply(Player player) {
-		Consequence.apply (this.getConsequences(player));
+	protected void perform(Player player) {
+		Consequence.apply (player.getGameState(), this.getConsequences(player));
 		int stars = unit.getOwnerPlayer().getStars();
 		unit.getOwnerPlayer().setStars(stars - 15);
 	}
 
+	Tile getSubject() {return unit.getPosition();}
+
 	@Override
 	public String toString() {
 		return "Upgrade to battleship";
@@ -1565,12 +1656,14 @@ class ActionCaptureValuableTile extends Action {
 		return history;
 	}
 
-	public void apply(Player player) {
-		Consequence.apply (this.getConsequences(player));
+	protected void perform(Player player) {
+		Consequence.apply (player.getGameState(), this.getConsequences(player));
 		unit.setAttackable(false);
 		unit.setMovable(false);
 	}
 
+	Tile getSubject() {return unit.getPosition();}
+
 	@Override
 	public String toString() {
 		if (unit.getPosition().getVariation() instanceof Resource
@@ -1622,11 +1715,14 @@ class ActionTrainUnit extends Action {
 		return history;
 	}
 
-	public void apply(Player player) {
+	protected void perform(Player player) {
 		player.setStars(player.getStars() - type.cost);
-		Consequence.apply (this.getConsequences(player));
+		Consequence.apply (player.getGameState(), this.getConsequences(player));
 	}
 
+	Tile getSubject() {return city.getOwnerTile();}
+	int getArgument() {return type.ordinal();}
+
 	@Override
 	public String toString() {
 		return type.toString();
@@ -1647,7 +1743,7 @@ class ActionStartTurn extends Action {
 	}
 
 	public boolean isPerformableTo(Player player) {
-		return player == Game.getCurrentPlayer();
+		return player == player.getGameState().getCurrentPlayer();
 	}
 
 	public ArrayList<Consequence> getConsequences(Player player) {
@@ -1671,8 +1767,8 @@ class ActionStartTurn extends Action {
 		return history;
 	}
 
-	public void apply(Player player) {
-		Consequence.apply (this.getConsequences(player));
+	protected void perform(Player player) {
+		Consequence.apply (player.getGameState(), this.getConsequences(player));
 	}
 
 	@Override
@@ -1692,7 +1788,7 @@ class ActionEndTurn extends Action {
 	}
 
 	public boolean isPerformableTo(Player player) {
-		return player == Game.getCurrentPlayer();
+		return player == player.getGameState().getCurrentPlayer();
 	}
 
 	public ArrayList<Consequence> getConsequences(Player player) {
@@ -1706,9 +1802,9 @@ class ActionEndTurn extends Action {
 		return history;
 	}
 
-	public void apply(Player player) {
-		Consequence.apply (this.getConsequences(player));
-		Game.nextPlayer();
+	protected void perform(Player player) {
+		Consequence.apply (player.getGameState(), this.getConsequences(player));
+		player.getGameState().nextPlayer();
 	}
 
 	@Override
@@ -0,0 +1,77 @@
+package polytopia.gameplay;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+
+/** Cache of Unit::getActions() for the units of a game.
+	An entry stays valid until a Consequence touches a tile the unit's actions
+	depend on, i.e. a tile within its movement+1 (for zones of control) or its
+	attack range, or until the unit's own state changes, e.g. it can no longer
+	move, gets upgraded, or its player unlocks a tech.
+	Consequences report the tiles they touch in Consequence::touch().
+	Cached lists are shared, and must not be modified by callers. */
+public class ActionCache {
+
+	private static class Entry {
+		ArrayList<Action> actions;
+		long key;
+	}
+
+	private IdentityHashMap<Unit, Entry> entries = new IdentityHashMap<>();
+
+	/* The state of UNIT itself that its actions depend on. */
+	private static long getKey(Unit unit) {
+		long key = unit.getType().ordinal();
+		key = key * 2 + (unit.isMovable() ? 1 : 0);
+		key = key * 2 + (unit.isAttackable() ? 1 : 0);
+		key = key * 2 + (unit.isVeteran() ? 1 : 0);
+		key = key * 2 + (unit.getKills() >= 3 ? 1 : 0);
+		key = key * 2 + (unit.getHealth() < unit.getMaxHealth() ? 1 : 0);
+		key = key * 64 + unit.getOwnerPlayer().getTechs().size();
+		key = key * 65536 + unit.getPosition().getX();
+		key = key * 65536 + unit.getPosition().getY();
+		return key;
+	}
+
+	/* Radius around a unit in which changed tiles can change its actions. */
+	private static int getRadius(Unit unit) {
+		return Integer.max(unit.getMovement() + 1, unit.getRange());
+	}
+
+	/* Cached actions of UNIT, or null if there are none. */
+	public synchronized ArrayList<Action> get(Unit unit) {
+		Entry entry = entries.get(unit);
+		if (entry == null || entry.key != getKey(unit))
+			return null;
+		return entry.actions;
+	}
+
+	public synchronized void put(Unit unit, ArrayList<Action> actions) {
+		Entry entry = new Entry();
+		entry.actions = actions;
+		entry.key = getKey(unit);
+		entries.put(unit, entry);
+	}
+
+	/* TILE has changed: drop the entries of units close enough to care. */
+	public synchronized void touch(Tile tile) {
+		Iterator<Unit> iterator = entries.keySet().iterator();
+		while (iterator.hasNext()) {
+			Unit unit = iterator.next();
+			if (TileMap.getDistance(unit.getPosition(), tile) <= getRadius(unit))
+				iterator.remove();
+		}
+	}
+
+	/* UNIT has died or changed hands: drop its entry, so that it does not
+	   outlive the unit. */
+	public synchronized void remove(Unit unit) {
+		entries.remove(unit);
+	}
+
+	/* Something changed that is not tied to tiles: drop every entry. */
+	public synchronized void touchAll() {
+		entries.clear();
+	}
+}
@@ -2,6 +2,7 @@ package polytopia.gameplay;
 
 
 import java.util.ArrayList;
+import java.util.function.Predicate;
 
 
 import polytopia.gameplay.Player.Faction;
@@ -27,14 +28,9 @@ public class City implements TileVariation {
 	public City(Tile[][] grid, Tile ownerTile, Player ownerPlayer) {
 		this.ownerTile = ownerTile;
 		this.ownerPlayer = ownerPlayer;
-		this.actions = new Action[] {
-            new ActionTrainUnit(this, UnitType.ARCHER), new ActionTrainUnit(this, UnitType.CATAPULT), 
-            new ActionTrainUnit(this, UnitType.DEFENDER), new ActionTrainUnit(this, UnitType.KNIGHT), 
-            new ActionTrainUnit(this, UnitType.MINDBENDER), new ActionTrainUnit(this, UnitType.RIDER), 
-            new ActionTrainUnit(this, UnitType.SWORDSMAN), new ActionTrainUnit(this, UnitType.WARRIOR), 
-        };
+		this.actions = newActions();
 
-		this.name = RandomName.roll();
+		this.name = RandomName.roll(ownerPlayer.getGameState().getRandom());
 		this.level = 1;
 		this.population = 0;
 		this.hasWall = false;
@@ -53,26 +49,73 @@ public class City implements TileVariation {
 		this.units = new ArrayList<Unit>();
 	}
 
+	/* Copy of OTHER on OWNERTILE, for GameState::copy(). 
+	   Territory and units are filled in by the caller. */
+	City(City other, Tile ownerTile, Player ownerPlayer) {
+		this.ownerTile = ownerTile;
+		this.ownerPlayer = ownerPlayer;
+		this.actions = newActions();
+
+		this.name = other.name;
+		this.level = other.level;
+		this.population = other.population;
+		this.hasWall = other.hasWall;
+		this.hasWorkshop = other.hasWorkshop;
+		this.territory = new ArrayList<Tile>(other.territory.size());
+		this.units = new ArrayList<Unit>(other.units.size());
+	}
+
+	/* A loaded city on OWNERTILE, for SaveGame::read().
+	   Territory and units are filled in by the caller. */
+	City(Tile ownerTile, Player ownerPlayer, String name, int level, int population,
+			boolean hasWall, boolean hasWorkshop) {
+		this.ownerTile = ownerTile;
+		this.ownerPlayer = ownerPlayer;
+		this.actions = newActions();
+
+		this.name = name;
+		this.level = level;
+		this.population = population;
+		this.hasWall = hasWall;
+		this.hasWorkshop = hasWorkshop;
+		this.territory = new ArrayList<Tile>();
+		this.units = new ArrayList<Unit>();
+	}
+
+	private Action[] newActions() {
+		return new Action[] {
+            new ActionTrainUnit(this, UnitType.ARCHER), new ActionTrainUnit(this, UnitType.CATAPULT), 
+            new ActionTrainUnit(this, UnitType.DEFENDER), new ActionTrainUnit(this, UnitType.KNIGHT), 
+            new ActionTrainUnit(this, UnitType.MINDBENDER), new ActionTrainUnit(this, UnitType.RIDER), 
+            new ActionTrainUnit(this, UnitType.SWORDSMAN), new ActionTrainUnit(this, UnitType.WARRIOR), 
+        };
+	}
+
     public ArrayList<BoundaryLine> getBoundary(Player viewingPlayer){
         ArrayList<BoundaryLine> lines = new ArrayList<BoundaryLine>();
-        int size = Game.map.getSize();
-        boolean[][] terri = new boolean[size][size];
-        for(Tile t : territory){
-            terri[t.getY()][t.getX()] = true;
-        }
-        for(int i = 0; i < size; i++){
-            for(int j = 0; j < size; j++){
-                if(terri[i][j] == false
-					|| !viewingPlayer.getVision().contains(Game.map.getGrid()[j][i])) 
-					continue;
-                if(i - 1 < 0 || terri[i - 1][j] == false) lines.add(new BoundaryLine(i, j, BoundaryLine.Side.LEFTUP));
-                if(i + 1 >= size || terri[i + 1][j] == false) lines.add(new BoundaryLine(i, j, BoundaryLine.Side.RIGHTDOWN));
-                if(j - 1 < 0 || terri[i][j - 1] == false) lines.add(new BoundaryLine(i, j, BoundaryLine.Side.RIGHTUP));
-                if(j + 1 >= size || terri[i][j + 1] == false) lines.add(new BoundaryLine(i, j, BoundaryLine.Side.LEFTDOWN));
-            }
-        }
+        addBoundary(lines, territory, viewingPlayer, t -> t.getOwnerCity() == this);
         return lines;
     }
+
+	/* Add to LINES the sides of the tiles of TERRITORY revealed to VIEWINGPLAYER that face
+	   the edge of the map, or a tile INSIDE does not hold. Neighbours are looked up on the
+	   grid, so this is O(|TERRITORY|) rather than a scan of the map. */
+	static void addBoundary(ArrayList<BoundaryLine> lines, ArrayList<Tile> territory,
+							Player viewingPlayer, Predicate<Tile> inside) {
+		if (territory.isEmpty())
+			return;
+		Tile[][] grid = territory.get(0).getOwnerCity().getOwnerPlayer().getGameState().getMap().getGrid();
+		int size = grid.length;
+		for (Tile t : territory) {
+			int x = t.getX(), y = t.getY();
+			if (!viewingPlayer.getVision().isRevealed(x, y))
+				continue;
+			if (y - 1 < 0 || !inside.test(grid[x][y - 1])) lines.add(new BoundaryLine(y, x, BoundaryLine.Side.LEFTUP));
+			if (y + 1 >= size || !inside.test(grid[x][y + 1])) lines.add(new BoundaryLine(y, x, BoundaryLine.Side.RIGHTDOWN));
+			if (x - 1 < 0 || !inside.test(grid[x - 1][y])) lines.add(new BoundaryLine(y, x, BoundaryLine.Side.RIGHTUP));
+			if (x + 1 >= size || !inside.test(grid[x + 1][y])) lines.add(new BoundaryLine(y, x, BoundaryLine.Side.LEFTDOWN));
+		}
+	}
 	private String name;
 	private int level;
 	private int population;
@@ -1,7 +1,12 @@
 package polytopia.gameplay;
 
 import java.util.ArrayList;
-import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
 import java.util.function.*;
 import java.awt.Color;
 
@@ -19,14 +24,73 @@ public abstract class Consequence implements Visualizable {
 	public abstract void log(ArrayList<Consequence> history);
 	public abstract int getReward();
 
-	public static void apply(ArrayList<Consequence> history) {
-		int idx = 0;
-		while (idx < history.size()) {
-			Consequence c = history.get(idx);
-			c.visualize();
-			c.apply();
-			idx++;
+	/* Report the tiles changed by apply() to CACHE, so that the cached actions
+	   of nearby units are dropped. By default, the whole cache is dropped;
+	   Consequences that are frequent or tile-local report precisely. */
+	public void touch(ActionCache cache) {
+		cache.touchAll();
+	}
+
+	/* Start the animation of this Consequence, and return a future that completes once
+	   it is over; the Consequence is applied then. By default, the animation is not
+	   waited for. Consequences that must be seen before they are applied override this,
+	   and schedule the steps of their animation on the completion of Motions. */
+	public CompletableFuture<Void> animate() {
+		visualize();
+		return CompletableFuture.completedFuture(null);
+	}
+
+	/* Animations are only waited for this long, e.g. in case no frame is drawn. */
+	private static final long animationTimeout = 5000;
+
+	public static void apply(GameState state, ArrayList<Consequence> history) {
+		if (state.isHeadless()) {
+			for (int idx = 0; idx < history.size(); idx++) {
+				history.get(idx).apply();
+				history.get(idx).touch(state.getActionCache());
+			}
+			return;
+		}
+
+		// Each Consequence is applied on this thread once its animation completes,
+		// then the next one is animated. The steps are queued here as they are scheduled.
+		LinkedBlockingQueue<Runnable> steps = new LinkedBlockingQueue<>();
+		CompletableFuture<Void> done = new CompletableFuture<>();
+		schedule(state, history, 0, steps::add, done);
+		while (!done.isDone()) {
+			try {steps.take().run();}
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			}
+		}
+		try {done.join();}
+		catch (CompletionException e) {
+			if (e.getCause() instanceof RuntimeException)
+				throw (RuntimeException) e.getCause();
+			throw e;
+		}
+	}
+
+	private static void schedule(GameState state, ArrayList<Consequence> history, int idx,
+									Executor gameThread, CompletableFuture<Void> done) {
+		if (idx >= history.size()) {
+			done.complete(null);
+			return;
 		}
+		Consequence c = history.get(idx);
+		c.animate()
+			.completeOnTimeout(null, animationTimeout, TimeUnit.MILLISECONDS)
+			.thenRunAsync(() -> {
+				c.apply();
+				c.touch(state.getActionCache());
+				Render.touchTerrain();
+				schedule(state, history, idx + 1, gameThread, done);
+			}, gameThread)
+			.exceptionally(e -> {
+				done.completeExceptionally(e.getCause() != null ? e.getCause() : e);
+				return null;
+			});
 	}
 }
 
@@ -58,6 +122,10 @@ class ConseqRemoveResource extends Consequence {
 		tile.setVariation(null);
 	}
 
+	public void touch(ActionCache cache) {
+		// No tile that unit actions depend on
+	}
+
 	public void log(ArrayList<Consequence> history) {
 		// No further consequence
 		history.add(this);
@@ -92,6 +160,10 @@ class ConseqRestoreResource extends Consequence {
 		subject.setVariation(new Resource(subject, type));
 	}
 
+	public void touch(ActionCache cache) {
+		// No tile that unit actions depend on
+	}
+
 	public void log(ArrayList<Consequence> history) {
 		// No further consequence
 		history.add(this);
@@ -141,9 +213,10 @@ class ConseqBuildImprovement extends Consequence {
 	public void apply() {
 		subject.setVariation(new Improvement(subject, type, level));
 
+		Tile[][] grid = subject.getOwnerCity().getOwnerPlayer().getGameState().getMap().getGrid();
 		Consumer<Improvement.ImprovementType> process =
 		(adjType) -> {
-			ArrayList<Tile> adj = TileMap.getInnerRing(Game.map.getGrid(), subject.getX(), subject.getY());
+			ArrayList<Tile> adj = TileMap.getInnerRing(grid, subject.getX(), subject.getY());
 			for (Tile tile : adj) {
 				if (tile.getVariation() instanceof Improvement
 					&& tile.getOwnerCity().getOwnerPlayer() == subject.getOwnerCity().getOwnerPlayer()
@@ -162,6 +235,10 @@ class ConseqBuildImprovement extends Consequence {
 		}
 	}
 
+	public void touch(ActionCache cache) {
+		cache.touch(subject);
+	}
+
 	public void log(ArrayList<Consequence> history) {
 		// Can cause RemoveResource, if subject has a resource
 		if (subject.getVariation() instanceof Resource) {
@@ -173,9 +250,10 @@ class ConseqBuildImprovement extends Consequence {
 		history.add(this);
 
 		// Can cause GrowPopulation, if adjacent Improvements are upgraded
+		Tile[][] grid = subject.getOwnerCity().getOwnerPlayer().getGameState().getMap().getGrid();
 		Consumer<Improvement.ImprovementType> process =
 		(adjType) -> {
-			ArrayList<Tile> adj = TileMap.getInnerRing(Game.map.getGrid(), subject.getX(), subject.getY());
+			ArrayList<Tile> adj = TileMap.getInnerRing(grid, subject.getX(), subject.getY());
 			for (Tile tile : adj) {
 				if (tile.getVariation() instanceof Improvement
 					&& tile.getOwnerCity().getOwnerPlayer() == subject.getOwnerCity().getOwnerPlayer()
@@ -241,9 +319,10 @@ class ConseqRemoveImprovement extends Consequence {
 		Tile tile = subject.getOwnerTile();
 		subject.getOwnerTile().setVariation(null);
 
+		Tile[][] grid = tile.getOwnerCity().getOwnerPlayer().getGameState().getMap().getGrid();
 		Consumer<Improvement.ImprovementType> process =
 		(adjType) -> {
-			ArrayList<Tile> adj = TileMap.getInnerRing(Game.map.getGrid(), tile.getX(), tile.getY());
+			ArrayList<Tile> adj = TileMap.getInnerRing(grid, tile.getX(), tile.getY());
 			for (Tile t : adj) {
 				if (t.getVariation() instanceof Improvement
 					&& t.getOwnerCity().getOwnerPlayer() == tile.getOwnerCity().getOwnerPlayer()
@@ -262,6 +341,10 @@ class ConseqRemoveImprovement extends Consequence {
 		}
 	}
 
+	public void touch(ActionCache cache) {
+		cache.touch(subject.getOwnerTile());
+	}
+
 	public void log(ArrayList<Consequence> history) {
 		// log this consequence
 		history.add(this);
@@ -279,7 +362,8 @@ class ConseqRemoveImprovement extends Consequence {
 		Consumer<Improvement.ImprovementType> process =
 		(adjType) -> {
 			Tile thisTile = subject.getOwnerTile();
-			ArrayList<Tile> adj = TileMap.getInnerRing(Game.map.getGrid(), thisTile.getX(), thisTile.getY());
+			Tile[][] grid = thisTile.getOwnerCity().getOwnerPlayer().getGameState().getMap().getGrid();
+			ArrayList<Tile> adj = TileMap.getInnerRing(grid, thisTile.getX(), thisTile.getY());
 			for (Tile tile : adj) {
 				if (tile.getVariation() instanceof Improvement
 					&& tile.getOwnerCity().getOwnerPlayer() == thisTile.getOwnerCity().getOwnerPlayer()
@@ -331,7 +415,7 @@ class ConseqCaptureVillage extends Consequence {
 	}
 
 	public void apply() {
-		City city = new City(Game.map.getGrid(), subject, player);
+		City city = new City(player.getGameState().getMap().getGrid(), subject, player);
 		subject.setVariation(city);
 		player.addCity(city);
 
@@ -456,7 +540,12 @@ class ConseqExploreRuins extends Consequence {
 		subject.setVariation(null);
 
 		// TODO: Inform player by PROMPT
-		System.out.println(prompt);
+		if (!player.getGameState().isHeadless())
+			System.out.println(prompt);
+	}
+
+	public void touch(ActionCache cache) {
+		// No tile that unit actions depend on
 	}
 
 	public void log(ArrayList<Consequence> history) {
@@ -471,7 +560,7 @@ class ConseqExploreRuins extends Consequence {
 		 * [2] Gain 3 population for capital
 		 * [3] Spawn a giant
 		 */
-		Random rnd = new Random((int)System.currentTimeMillis());
+		SplittableRandom rnd = player.getGameState().getRandom();
 		reroll:
 		switch (rnd.nextInt(4)) {
 			case 0: 
@@ -524,34 +613,28 @@ class ConseqGrowPopulation extends Consequence {
 	private int value;
 
 	public void visualize() {
+		animate();
+	}
+
+	@Override
+	public CompletableFuture<Void> animate() {
 
 		if (Game.getHumanPlayer() != Game.getCurrentPlayer())
-			return;
+			return CompletableFuture.completedFuture(null);
 
 		long current = System.currentTimeMillis();
 		Motion t = Motion.getInstanceOfTextureMotion(
 			"POPULATION-" + source.getOwnerCity().getOwnerPlayer().getFaction().toString(),
 			source, source.getOwnerCity().getOwnerTile(),  current, current + 500);
-		Render.addMotion(t);
-		
-		synchronized(t){
-			try{
-				t.wait();
-			}catch(Exception e){}
-		}
-
-		current = System.currentTimeMillis();
-		t = Motion.getInstanceOfMovableMotion(
-			subject.getOwnerTile(), 
-			subject.getOwnerTile(), current, current + 200);
-		Render.addMotion(t);
-		subject.getOwnerTile().setMotion(t);
 
-		synchronized(t){
-			try{
-				t.wait();
-			}catch(Exception e){}
-		}
+		return Render.addMotion(t).thenCompose(v -> {
+			long now = System.currentTimeMillis();
+			Motion jump = Motion.getInstanceOfMovableMotion(
+				subject.getOwnerTile(), 
+				subject.getOwnerTile(), now, now + 200);
+			subject.getOwnerTile().setMotion(jump);
+			return Render.addMotion(jump);
+		});
 	}
 
 	public void apply() {
@@ -559,6 +642,10 @@ class ConseqGrowPopulation extends Consequence {
 		subject.setPopulation(population);
 	}
 
+	public void touch(ActionCache cache) {
+		// No tile that unit actions depend on
+	}
+
 	public void log(ArrayList<Consequence> history) {
 
 		// Calculate population growth so far
@@ -611,9 +698,14 @@ class ConseqLosePopulation extends Consequence {
 	private int value;
 
 	public void visualize() {
+		animate();
+	}
+
+	@Override
+	public CompletableFuture<Void> animate() {
 
 		if (Game.getHumanPlayer() != Game.getCurrentPlayer())
-			return;
+			return CompletableFuture.completedFuture(null);
 
 		/* Note for Shaw: 
 			Tile Jump Animation.
@@ -621,14 +713,8 @@ class ConseqLosePopulation extends Consequence {
 			BLOCKING: Wait for the animation to complete. */
 		long current = System.currentTimeMillis();
 		Motion t = Motion.getInstanceOfMovableMotion(subject.getOwnerTile(), subject.getOwnerTile(), current, current + 200);
-		Render.addMotion(t);
 		subject.getOwnerTile().setMotion(t);
-		
-		synchronized(t){
-			try{
-				t.wait();
-			}catch(Exception e){}
-		}
+		return Render.addMotion(t);
 
 	}
 
@@ -636,6 +722,10 @@ class ConseqLosePopulation extends Consequence {
 		subject.setPopulation(subject.getPopulation() - value);
 	}
 
+	public void touch(ActionCache cache) {
+		// No tile that unit actions depend on
+	}
+
 	public void log(ArrayList<Consequence> history) {
 		// log this consequence
 		history.add(this);
@@ -664,9 +754,14 @@ class ConseqUpgradeCity extends Consequence {
 	private int newLevel;
 
 	public void visualize() {
+		animate();
+	}
+
+	@Override
+	public CompletableFuture<Void> animate() {
 
 		if (Game.getHumanPlayer() != Game.getCurrentPlayer())
-			return;
+			return CompletableFuture.completedFuture(null);
 
 		//TODO: Implements Event, so that a Dialog is shown here to inform
 		//		human players about this consequence. It is even possible to
@@ -681,14 +776,8 @@ class ConseqUpgradeCity extends Consequence {
 		long current = System.currentTimeMillis();
 		Motion t = Motion.getInstanceOfMovableMotion(subject.getOwnerTile(), subject.getOwnerTile(), current, current + 400);
 		t.setMotionType(MotionType.PRESSED);
-		Render.addMotion(t);
 		subject.getOwnerTile().setMotion(t);
-		
-		synchronized(t){
-			try{
-				t.wait();
-			}catch(Exception e){}
-		}
+		return Render.addMotion(t);
 	}
 
 	public void apply() {
@@ -713,7 +802,8 @@ class ConseqUpgradeCity extends Consequence {
 				break;
 			case 4:
 				Tile center = subject.getOwnerTile();
-				for (Tile tile : TileMap.getOuterRing(Game.map.getGrid(), center.getX(), center.getY())) {
+				Tile[][] grid = subject.getOwnerPlayer().getGameState().getMap().getGrid();
+				for (Tile tile : TileMap.getOuterRing(grid, center.getX(), center.getY())) {
 					// claim tiles that are not yet claimed
 					if (tile.getOwnerCity() == null) {
 						tile.setOwnerCity(subject);
@@ -746,7 +836,7 @@ class ConseqUpgradeCity extends Consequence {
 				// Expand territory; can cause Discovery of Tile
 				Tile center = subject.getOwnerTile();
 				Player player = subject.getOwnerPlayer();
-				for (Tile tile : TileMap.getOuterRing(Game.map.getGrid(), center.getX(), center.getY())) {
+				for (Tile tile : TileMap.getOuterRing(player.getGameState().getMap().getGrid(), center.getX(), center.getY())) {
 					// will discover the outer ring, if still undiscovered
 					if (!player.getVision().contains(tile)) {
 						new ConseqDiscoverTile(tile, player).log(history);
@@ -809,6 +899,10 @@ class ConseqGainStars extends Consequence {
 		subject.setStars(subject.getStars() + amount);
 	}
 
+	public void touch(ActionCache cache) {
+		// No tile that unit actions depend on
+	}
+
 	public void log(ArrayList<Consequence> history) {
 		history.add(this);
 	}
@@ -851,6 +945,10 @@ class ConseqChangeTerrain extends Consequence {
 		subject.setTerrainType(type);
 	}
 
+	public void touch(ActionCache cache) {
+		cache.touch(subject);
+	}
+
 	public void log(ArrayList<Consequence> history) {
 		// Can cause RemoveResource, if subject has resource
 		if (subject.getVariation() instanceof Resource) {
@@ -895,6 +993,10 @@ class ConseqUnlockTech extends Consequence {
 		player.addTech(tech);
 	}
 
+	public void touch(ActionCache cache) {
+		// ActionCache checks the tech count of the player itself
+	}
+
 	public void log(ArrayList<Consequence> history) {
 		// log this consequence
 		history.add(this);
@@ -937,6 +1039,10 @@ class ConseqDiscoverTile extends Consequence {
 		player.addVision(subject);
 	}
 
+	public void touch(ActionCache cache) {
+		// No tile that unit actions depend on
+	}
+
 	public void log(ArrayList<Consequence> history) {
 		// log this consequence
 		history.add(this);
@@ -986,6 +1092,10 @@ class ConseqUnitUpgrade extends Consequence {
 
 	}
 
+	public void touch(ActionCache cache) {
+		// Only changes the state of the unit, which ActionCache checks itself
+	}
+
 	public void log(ArrayList<Consequence> history) {
 		// log this consequence
 		history.add(this);
@@ -1028,6 +1138,10 @@ class ConseqUpgradeBoat extends Consequence {
 		
 	}
 
+	public void touch(ActionCache cache) {
+		// Only changes the state of the unit, which ActionCache checks itself
+	}
+
 	public void log(ArrayList<Consequence> history) {
 		// log this consequence
 		history.add(this);
@@ -1069,6 +1183,10 @@ class ConseqUpgradeShip extends Consequence {
 		}
 	}
 
+	public void touch(ActionCache cache) {
+		// Only changes the state of the unit, which ActionCache checks itself
+	}
+
 	public void log(ArrayList<Consequence> history) {
 		// log this consequence
 		history.add(this);
@@ -1077,11 +1195,8 @@ class ConseqUpgradeShip extends Consequence {
 		int range = 2;
 		Player player = unit.getOwnerPlayer();
 		Tile position = unit.getPosition();
-		for (Tile tile : TileMap.getSurroundings(Game.map.getGrid(), position.getX(), position.getY(), range)) {
-			if (!player.getVision().contains(tile)) {
-				new ConseqDiscoverTile(tile, player).log(history);
-			}		
-		}
+		for (Tile tile : player.getVision().getHidden(position.getX(), position.getY(), range))
+			new ConseqDiscoverTile(tile, player).log(history);
 	}
 
 	public int getReward() {
@@ -1122,6 +1237,10 @@ class ConseqUnitRecover extends Consequence {
 		
 	}
 
+	public void touch(ActionCache cache) {
+		// Only changes the state of the unit, which ActionCache checks itself
+	}
+
 	public void log(ArrayList<Consequence> history) {
 		// log this consequence
 		history.add(this);
@@ -1146,8 +1265,14 @@ class ConseqUnitRecover extends Consequence {
 class ConseqUnitMove extends Consequence {
 	private Unit unit;
 	private Tile destination;
+	private Tile origin;
 
 	public void visualize() {
+		animate();
+	}
+
+	@Override
+	public CompletableFuture<Void> animate() {
 		
 		if (destination.getY()-unit.getPosition().getY() > destination.getX()-unit.getPosition().getX())
 			unit.setFlipped(false);
@@ -1155,27 +1280,26 @@ class ConseqUnitMove extends Consequence {
 			unit.setFlipped(true);
 
 		if (!Game.getHumanPlayer().getVision().contains(unit.getPosition()))
-			return;
+			return CompletableFuture.completedFuture(null);
 
 		long current = System.currentTimeMillis();
 		long elapsed = TileMap.getDistance(unit.getPosition(), destination)*100;
 		Motion t = Motion.getInstanceOfMovableMotion(unit, unit.getPosition(), destination, current, current + elapsed);
-		Render.addMotion(t);
 		unit.setMotion(t);
-		synchronized(t){
-			try{
-				t.wait();
-			}catch(Exception e){}
-		}
+		return Render.addMotion(t);
 	}
 
 	public void apply() {
 		// Move to the destination
-		Tile origin = unit.getPosition();
+		origin = unit.getPosition();
 		origin.setUnit(null);
 		destination.setUnit(unit);
 		unit.setPosition(destination);
 
+		ZoneOfControl zoneOfControl = unit.getOwnerPlayer().getGameState().getZoneOfControl();
+		zoneOfControl.removeUnit(unit.getOwnerPlayer(), origin.getX(), origin.getY());
+		zoneOfControl.addUnit(unit.getOwnerPlayer(), destination.getX(), destination.getY());
+
 		// Set UNIT's attackable and movable
 		boolean hasDash = false;
 		boolean hasPersist = false;
@@ -1201,6 +1325,11 @@ class ConseqUnitMove extends Consequence {
 		unit.setMovable(false);
 	}
 
+	public void touch(ActionCache cache) {
+		cache.touch(origin);
+		cache.touch(destination);
+	}
+
 	public void log(ArrayList<Consequence> history) {
 		// log this consequence
 		history.add(this);
@@ -1234,11 +1363,8 @@ class ConseqUnitMove extends Consequence {
 			range = 2;
 
 		Player player = unit.getOwnerPlayer();
-		for (Tile tile : TileMap.getSurroundings(Game.map.getGrid(), destination.getX(), destination.getY(), range)) {
-			if (!player.getVision().contains(tile)) {
-				new ConseqDiscoverTile(tile, player).log(history);
-			}		
-		}
+		for (Tile tile : player.getVision().getHidden(destination.getX(), destination.getY(), range))
+			new ConseqDiscoverTile(tile, player).log(history);
 
 	}
 
@@ -1265,6 +1391,11 @@ class ConseqUnitAttack extends Consequence {
 	private int defenseResult;
 
 	public void visualize() {
+		animate();
+	}
+
+	@Override
+	public CompletableFuture<Void> animate() {
 		/* Note for Shaw */
 
 		Tile unitTile = unit.getPosition();
@@ -1280,7 +1411,7 @@ class ConseqUnitAttack extends Consequence {
 		}
 
 		if (!Game.getHumanPlayer().getVision().contains(unit.getPosition()))
-			return;
+			return CompletableFuture.completedFuture(null);
 
 		long current = System.currentTimeMillis();
 		Motion t;
@@ -1298,17 +1429,11 @@ class ConseqUnitAttack extends Consequence {
 			default: 
 				t = Motion.getInstanceOfTextureMotion("SWORD", unit.getPosition(), enemy.getPosition(),  current, current + 300);
 		}
-		Render.addMotion(t);
-		synchronized(t){
-			try{
-				t.wait();
-			}catch(Exception e){}
-		}
-
-		current = System.currentTimeMillis();
-		t = Motion.getInstanceOfStringMotion(String.valueOf(attackResult), enemy.getPosition(), current, current + 500, Color.RED);
-		Render.addMotion(t);
-
+		return Render.addMotion(t).thenRun(() -> {
+			long now = System.currentTimeMillis();
+			Motion result = Motion.getInstanceOfStringMotion(String.valueOf(attackResult), enemy.getPosition(), now, now + 500, Color.RED);
+			Render.addMotion(result);
+		});
 	}
 
 	public void apply() {
@@ -1343,6 +1468,11 @@ class ConseqUnitAttack extends Consequence {
 
 	}
 
+	public void touch(ActionCache cache) {
+		cache.touch(unit.getPosition());
+		cache.touch(enemy.getPosition());
+	}
+
 	public void log(ArrayList<Consequence> history) {
 		// log this consequence
 		history.add(this);
@@ -1419,10 +1549,15 @@ class ConseqUnitRetaliate extends Consequence {
 	private int defenseResult;
 
 	public void visualize() {
+		animate();
+	}
+
+	@Override
+	public CompletableFuture<Void> animate() {
 		/* Note for Shaw */
 
 		if (!Game.getHumanPlayer().getVision().contains(unit.getPosition()))
-			return;
+			return CompletableFuture.completedFuture(null);
 
 		long current = System.currentTimeMillis();
 		Motion t;
@@ -1440,16 +1575,11 @@ class ConseqUnitRetaliate extends Consequence {
 			default: 
 				t = Motion.getInstanceOfTextureMotion("SWORD", unit.getPosition(), enemy.getPosition(),  current, current + 300);
 		}
-		Render.addMotion(t);
-		synchronized(t){
-			try{
-				t.wait();
-			}catch(Exception e){}
-		}
-
-		current = System.currentTimeMillis();
-		t = Motion.getInstanceOfStringMotion(String.valueOf(defenseResult), enemy.getPosition(), current, current + 500, Color.RED);
-		Render.addMotion(t);
+		return Render.addMotion(t).thenRun(() -> {
+			long now = System.currentTimeMillis();
+			Motion result = Motion.getInstanceOfStringMotion(String.valueOf(defenseResult), enemy.getPosition(), now, now + 500, Color.RED);
+			Render.addMotion(result);
+		});
 	}
 
 	public void apply() {
@@ -1458,6 +1588,11 @@ class ConseqUnitRetaliate extends Consequence {
 			unit.setKills(unit.getKills()+1);
 	}
 
+	public void touch(ActionCache cache) {
+		cache.touch(unit.getPosition());
+		cache.touch(enemy.getPosition());
+	}
+
 	public void log(ArrayList<Consequence> history) {
 		// log this consequence
 		history.add(this);
@@ -1520,6 +1655,11 @@ class ConseqUnitConvert extends Consequence {
 		oldOwner.getUnits().remove(enemy);
 		enemy.setOwnerPlayer(newOwner);
 		newOwner.getUnits().add(enemy);
+
+		Tile position = enemy.getPosition();
+		ZoneOfControl zoneOfControl = newOwner.getGameState().getZoneOfControl();
+		zoneOfControl.removeUnit(oldOwner, position.getX(), position.getY());
+		zoneOfControl.addUnit(newOwner, position.getX(), position.getY());
 		if (oldCity != null) {
 			oldCity.getUnits().remove(enemy);
 		}
@@ -1531,6 +1671,13 @@ class ConseqUnitConvert extends Consequence {
 		}
 	}
 
+	public void touch(ActionCache cache) {
+		cache.touch(enemy.getPosition());
+		cache.remove(enemy);
+		if (enemy.getCarryUnit() != null)
+			cache.remove(enemy.getCarryUnit());
+	}
+
 	public void log(ArrayList<Consequence> history) {
 		// log this consequence
 		history.add(this);
@@ -1544,11 +1691,8 @@ class ConseqUnitConvert extends Consequence {
 			range = 2;
 
 		Player player = unit.getOwnerPlayer();
-		for (Tile tile : TileMap.getSurroundings(Game.map.getGrid(), destination.getX(), destination.getY(), range)) {
-			if (!player.getVision().contains(tile)) {
-				new ConseqDiscoverTile(tile, player).log(history);
-			}		
-		}
+		for (Tile tile : player.getVision().getHidden(destination.getX(), destination.getY(), range))
+			new ConseqDiscoverTile(tile, player).log(history);
 
 		// Can cause Claim of city/vill/ruins
 		if (destination.getVariation() instanceof Resource) {
@@ -1595,6 +1739,15 @@ class ConseqUnitDeath extends Consequence {
 		player.getUnits().remove(unit);
 		if (city != null)
 			city.getUnits().remove(unit);
+
+		player.getGameState().getZoneOfControl().removeUnit(player, position.getX(), position.getY());
+	}
+
+	public void touch(ActionCache cache) {
+		cache.touch(unit.getPosition());
+		cache.remove(unit);
+		if (unit.getCarryUnit() != null)
+			cache.remove(unit.getCarryUnit());
 	}
 
 	public void log(ArrayList<Consequence> history) {
@@ -1662,6 +1815,10 @@ class ConseqUnitCarry extends Consequence {
 		position.setUnit(boat);
 	}
 
+	public void touch(ActionCache cache) {
+		cache.touch(unit.getPosition());
+	}
+
 	public void log(ArrayList<Consequence> history) {
 		// log this consequence
 		history.add(this);
@@ -1669,7 +1826,7 @@ class ConseqUnitCarry extends Consequence {
 
 	public int getReward() {
 		//TODO: Bot use this value for making decisions
-		return Math.min(Game.getTurn() / 10, 3);
+		return Math.min(unit.getOwnerPlayer().getGameState().getTurn() / 10, 3);
 	}
 
 	public ConseqUnitCarry(Unit unit) {
@@ -1716,6 +1873,10 @@ class ConseqUnitLand extends Consequence {
 		position.setUnit(passenger);
 	}
 
+	public void touch(ActionCache cache) {
+		cache.touch(unit.getPosition());
+	}
+
 	public void log(ArrayList<Consequence> history) {
 		// log this consequence
 		history.add(this);
@@ -1723,10 +1884,11 @@ class ConseqUnitLand extends Consequence {
 
 	public int getReward() {
 		//TODO: Bot use this value for making decisions
+		int turn = unit.getOwnerPlayer().getGameState().getTurn();
 		if (unit.getType() == Unit.UnitType.SHIP)
-			return -2 + Math.min(2, Game.getTurn() / 20);
+			return -2 + Math.min(2, turn / 20);
 		if (unit.getType() == Unit.UnitType.BATTLESHIP)
-			return -5 + Math.min(5, Game.getTurn() / 20);
+			return -5 + Math.min(5, turn / 20);
 		return 0;
 	}
 
@@ -1760,6 +1922,10 @@ class ConseqUnitRest extends Consequence {
 		
 	}
 
+	public void touch(ActionCache cache) {
+		// Only changes the state of the unit, which ActionCache checks itself
+	}
+
 	public void log(ArrayList<Consequence> history) {
 		// log this consequence
 		history.add(this);
@@ -1809,7 +1975,12 @@ class ConseqUnitSpawn extends Consequence {
 		
 		newUnit.setPosition(tile);
 		tile.setUnit(newUnit);
-		
+
+		player.getGameState().getZoneOfControl().addUnit(player, tile.getX(), tile.getY());
+	}
+
+	public void touch(ActionCache cache) {
+		cache.touch(tile);
 	}
 
 	public void log(ArrayList<Consequence> history) {
@@ -1818,7 +1989,7 @@ class ConseqUnitSpawn extends Consequence {
 		if (tile.getUnit() != null) {
 			Unit oldUnit = tile.getUnit();
 			Tile destination = null;
-			Tile[][] grid = Game.map.getGrid();
+			Tile[][] grid = player.getGameState().getMap().getGrid();
 
 			for (Tile t : TileMap.getInnerRing(grid, tile.getX(), tile.getY())) {
 				if (t.getUnit() != null) 
@@ -1861,7 +2032,7 @@ class ConseqUnitSpawn extends Consequence {
 		//TODO: Bot use this value for making decisions
 		boolean preferRanged = true;
 		int preferDefense = 0;
-		for (Tile t : TileMap.getSurroundings(Game.map.getGrid(), tile.getX(), tile.getY(), 2))
+		for (Tile t : TileMap.getSurroundings(player.getGameState().getMap().getGrid(), tile.getX(), tile.getY(), 2))
 			if (t.hasEnemy(player)) {
 				preferRanged = false;
 				preferDefense++;
@@ -1870,7 +2041,7 @@ class ConseqUnitSpawn extends Consequence {
 
 		switch (type) {
 			case WARRIOR:
-				return 2 + Math.max((20 - Game.getTurn())/20, 0);
+				return 2 + Math.max((20 - player.getGameState().getTurn())/20, 0);
 			case ARCHER:
 				return 2 + (preferRanged ? 1 : 0);
 			case CATAPULT:
@@ -1917,6 +2088,10 @@ class ConseqClaimValuableTile extends Consequence {
 		/* Empty */
 	}
 
+	public void touch(ActionCache cache) {
+		// No tile that unit actions depend on
+	}
+
 	public void log(ArrayList<Consequence> history) {
 		// log this consequence
 		history.add(this);
@@ -2,39 +2,52 @@ package polytopia.gameplay;
 
 import java.io.*;
 import java.util.ArrayList;
-import java.util.Random;
 import java.util.Scanner;
 import java.util.InputMismatchException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import polytopia.gameplay.Player.Tech;
 import polytopia.window.GameWindow;
 
 public class Game {
 
-	public static TileMap map = null;
-	public static Player[] players = null; 
+	/* The game shown in the GameWindow. Other games, e.g. headless simulations,
+	   live in their own GameState and never touch these statics. */
+	private static GameState state = null;
 	public static GameWindow window = null;
 
+	public static GameState getState() {return state;}
+	public static TileMap getMap() {return state.getMap();}
+	public static Player[] getPlayers() {return state.getPlayers();}
+
 	public static Player getHumanPlayer() {
 		// Human player is always index 0
-		return players[0];
+		return state.getHumanPlayer();
 	}
 
-	private static int turn = 1;
-	public static int currentPlayerId = 0;
-	public static int getTurn() {return turn;}
+	public static int getTurn() {return state.getTurn();}
 	public static Player getCurrentPlayer() {
-		return players[currentPlayerId];
+		return state.getCurrentPlayer();
 	}
 
-	public static void nextPlayer() {
-		if (currentPlayerId+1 == players.length) {
-			currentPlayerId = 0;
-			turn++;
-		}
-		else
-			currentPlayerId++;
-		Game.getCurrentPlayer().play();
+	public static boolean isHeadless() {return state.isHeadless();}
+
+	/* Actions and bot turns of the shown game run on this one thread, one at a time and
+	   in the order they are submitted, so that two clicks never apply actions over the
+	   same Tiles at once. A task that ends a turn only submits the next bot turn. */
+	private static final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+		Thread t = new Thread(r, "game");
+		t.setDaemon(true);
+		return t;
+	});
+
+	/* Run COMMAND on the game thread, after everything submitted before it. */
+	public static void execute(Runnable command) {
+		executor.execute(() -> {
+			try {command.run();}
+			catch (RuntimeException e) {e.printStackTrace();}
+		});
 	}
 
 	/* Start a new Game instance with given settings.*/
@@ -42,17 +55,87 @@ public class Game {
 							String[] playerFactions, 
 							GameWindow window) {
 
-		/* Use TileMap::MapGenerator::generate() */
-		Game.players = new Player[playerFactions.length];
-		for (int i = 0; i < players.length; i++)
-			players[i] = new Player(playerFactions[i], i, (i == 0) ? false : true);
-			
-		Game.map = new TileMap(mapSize, mapSeed, mapType, Game.players);
+		closeJournal();
+		Game.state = new GameState(mapSize, mapSeed, mapType, playerFactions, false);
+		Game.window = window;
+		createJournal();
+	}
+
+	/* Start a new headless Game instance with given settings, where all players
+	   are bots. Consequences are not visualized, so no AWT class is touched. */
+	public static void startHeadless(int mapSize, int mapSeed, String mapType, 
+									String[] playerFactions) {
+
+		closeJournal();
+		Game.state = new GameState(mapSize, mapSeed, mapType, playerFactions, true);
+		Game.window = null;
+	}
+
+	/* Play the headless game, see GameState::simulate(). */
+	public static void simulate(int maxTurns) {
+		state.simulate(maxTurns);
+	}
+
+	public static boolean isOver() {return state.isOver();}
+
+	/* Where the shown game is saved on exit, and loaded from by LOAD GAME. */
+	public static final File saveFile = new File("./polytopia.sav");
+	/* Where the actions of the shown game are logged, see Journal. */
+	public static final File journalFile = new File("./polytopia.jnl");
+
+	/* Resume a previous game, with MAP, PLAYERS and other stats loaded from FILE. If the
+	   journal is of the same game, i.e. starts from the same seed, it is at least as recent
+	   as FILE, as saving checkpoints it, so the game is recovered from it instead, e.g.
+	   after a crash; and so is a game that crashed before it was ever saved. */
+	public static void resume(File file, GameWindow window) throws IOException {
+		closeJournal();
+		GameState saved = null;
+		IOException error = null;
+		try {saved = SaveGame.read(file, false);}
+		catch (IOException e) {error = e;}
+
+		if (window != null && Journal.exists(journalFile)) {
+			try {
+				if (saved == null || Journal.getSeed(journalFile) == saved.getSeed()) {
+					Game.state = Journal.recover(journalFile, false);
+					Game.window = window;
+					state.setJournal(Journal.open(journalFile, state));
+					return;
+				}
+			} catch (IOException e) {
+				System.out.printf ("cannot recover from %s: %s\n", journalFile.getPath(), e.getMessage());
+			}
+		}
+		if (saved == null)
+			throw error;
+		Game.state = saved;
 		Game.window = window;
+		createJournal();
+	}
+
+	/* Log the actions of the game shown in a window, but not e.g. of benchmark games,
+	   lest they replace the journal of the player. */
+	private static void createJournal() {
+		if (window == null)
+			return;
+		try {state.setJournal(Journal.create(journalFile, state));}
+		catch (IOException e) {System.out.printf ("cannot log to %s: %s\n", journalFile.getPath(), e.getMessage());}
+	}
+
+	private static void closeJournal() {
+		if (state == null || state.getJournal() == null)
+			return;
+		try {state.getJournal().close();}
+		catch (IOException e) {System.out.printf ("cannot close %s: %s\n", journalFile.getPath(), e.getMessage());}
+		state.setJournal(null);
 	}
 
-	/* Resume a previous game by loading MAP, PLAYERS and other stats. */
-	public static void resume(){}
+	/* Save the shown game to FILE; on the game thread, so that no action is half applied. */
+	public static void save(File file) throws IOException {
+		SaveGame.write(state, file, true);
+		if (state.getJournal() != null)
+			state.getJournal().checkpoint();
+	}
 
 
 	public static void debugCommandLine() {
@@ -124,10 +207,10 @@ public class Game {
 					int x,y;
 					try {x = scanner.nextInt(); y = scanner.nextInt();}
 					catch (InputMismatchException e) {break;}
-					if (!TileMap.isValid(Game.map.getGrid(), x, y))
+					if (!TileMap.isValid(Game.getMap().getGrid(), x, y))
 						System.out.printf ("(%d, %d) is not on map", x, y);
 					else {
-						Tile tile = Game.map.getGrid()[x][y];
+						Tile tile = Game.getMap().getGrid()[x][y];
 						System.out.printf ("(%d, %d), %s, with %s\n",
 									tile.getX(), tile.getY(), 
 									tile.getTerrainType().toString(),
@@ -203,19 +286,30 @@ public class Game {
 						if (actionIdx >= 0 && actionIdx < actions.size()) {
 							if (actions.get(actionIdx).isPerformableTo (Game.getCurrentPlayer())) {
 								Action action = actions.get(actionIdx);
-								new Thread(()->{
+								Game.execute(()->{
 									action.apply(Game.getCurrentPlayer());
-								}).start();
+								});
 							}
 							else
 								System.out.println ("action not performable");
 						}
 					}
 					break;
+				case "w":
+				case "write":
+					Game.execute(()->{
+						try {
+							Game.save(saveFile);
+							System.out.printf ("saved to %s\n", saveFile.getPath());
+						} catch (IOException e) {
+							System.out.printf ("cannot save: %s\n", e.getMessage());
+						}
+					});
+					break;
 				case "0":
-					new Thread(()->{
+					Game.execute(()->{
 						new ActionEndTurn().apply(Game.getCurrentPlayer());
-					}).start();
+					});
 				case "":
 					break;
 				default:
@@ -225,7 +319,8 @@ public class Game {
 										"\t player(p) for changing current player\n"+
 										"\t star(s) for setting current player star count\n"+
 										"\t tech(t) for setting current player tech\n"+
-										"\t query(q) for selecting tile, and more actions\n");
+										"\t query(q) for selecting tile, and more actions\n"+
+										"\t write(w) for saving the game\n");
 			}
 		}
 	}
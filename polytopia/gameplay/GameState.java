@@ -0,0 +1,243 @@
+package polytopia.gameplay;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/** The state of one game: map, players, turn counter and the AI scratch buffers.
+	Each GameState is independent of the others, so a JVM can host many games,
+	e.g. one headless game per core. Gameplay code reaches its GameState through
+	Player::getGameState(), never through the static Game. */
+public class GameState {
+
+	private TileMap map;
+	private Player[] players;
+	private AI ai;
+	private ZoneOfControl zoneOfControl;
+	private ActionCache actionCache = new ActionCache();
+
+	private int turn = 1;
+	private int currentPlayerId = 0;
+
+	/* In headless mode, there is no GameWindow or Render, and every player is a bot. */
+	private boolean headless;
+
+	/* Where the applied Actions are logged; only the shown game has one. */
+	private Journal journal = null;
+
+	/* The randomness of this game, e.g. city names and the rewards of ruins. Every Action
+	   reseeds it from SEED and the number of Actions applied before, so that what an Action
+	   draws does not depend on what was drawn in between, e.g. by bots, and a saved or
+	   replayed game draws the same as the original. */
+	private long seed;
+	private long applied = 0;
+	private SplittableRandom random;
+
+	public GameState(int mapSize, int mapSeed, String mapType, 
+					String[] playerFactions, boolean headless) {
+
+		this.headless = headless;
+		this.seed = mapSeed;
+		reseed();
+
+		/* Human player is always index 0, unless headless */
+		this.players = new Player[playerFactions.length];
+		for (int i = 0; i < players.length; i++)
+			players[i] = new Player(this, playerFactions[i], i, headless || i != 0);
+
+		/* Use TileMap::MapGenerator::generate() */
+		this.map = new TileMap(mapSize, mapSeed, mapType, players);
+		this.zoneOfControl = new ZoneOfControl(map.getGrid(), players);
+		this.ai = new AI(this);
+	}
+
+	/* An empty game, filled in by copy() or SaveGame::read(). */
+	GameState(boolean headless) {
+		this.headless = headless;
+	}
+
+	/* E.g. for the Journal to replay the Actions of a game to show, headless. */
+	void setHeadless(boolean headless) {this.headless = headless;}
+
+	public Journal getJournal() {return journal;}
+	public void setJournal(Journal journal) {this.journal = journal;}
+
+	/* Set the MAP and PLAYERS of a game loaded by SaveGame::read(). */
+	void restore(TileMap map, Player[] players, int turn, int currentPlayerId, long seed, long applied) {
+		this.map = map;
+		this.players = players;
+		this.turn = turn;
+		this.currentPlayerId = currentPlayerId;
+		this.seed = seed;
+		this.applied = applied;
+		reseed();
+		this.zoneOfControl = new ZoneOfControl(map.getGrid(), players);
+		this.ai = new AI(this);
+	}
+
+	/* A deep copy of this game, sharing nothing mutable with it, e.g. for bots
+	   to look ahead by applying Actions. The copy is always headless. */
+	public GameState copy() {
+		GameState copy = new GameState(true);
+		copy.turn = this.turn;
+		copy.currentPlayerId = this.currentPlayerId;
+		copy.seed = this.seed;
+		copy.applied = this.applied;
+		copy.reseed();
+
+		int size = map.getSize();
+		Tile[][] grid = map.getGrid();
+		Tile[][] newGrid = new Tile[size][size];
+		for (int x = 0; x < size; x++)
+			for (int y = 0; y < size; y++)
+				newGrid[x][y] = new Tile(x, y, grid[x][y].getTerrainType(), null, grid[x][y].getStyle());
+
+		copy.players = new Player[players.length];
+		IdentityHashMap<City, City> cities = new IdentityHashMap<>();
+		for (int i = 0; i < players.length; i++) {
+			Player player = new Player(players[i], copy);
+			copy.players[i] = player;
+			player.setVision(new Vision(players[i].getVision(), newGrid));
+			for (City city : players[i].getCities()) {
+				Tile tile = city.getOwnerTile();
+				City newCity = new City(city, newGrid[tile.getX()][tile.getY()], player);
+				cities.put(city, newCity);
+				player.addCity(newCity);
+			}
+		}
+		/* A capital may have been captured by a player copied later */
+		for (int i = 0; i < players.length; i++)
+			if (players[i].getCapital() != null)
+				copy.players[i].setCapital(cities.get(players[i].getCapital()));
+
+		IdentityHashMap<Unit, Unit> units = new IdentityHashMap<>();
+		for (int i = 0; i < players.length; i++)
+			for (Unit unit : players[i].getUnits())
+				copy.players[i].getUnits().add(copyUnit(unit, copy, newGrid, cities, units));
+
+		for (int x = 0; x < size; x++) {
+			for (int y = 0; y < size; y++) {
+				Tile tile = grid[x][y], newTile = newGrid[x][y];
+				if (tile.getUnit() != null)
+					newTile.setUnit(copyUnit(tile.getUnit(), copy, newGrid, cities, units));
+
+				TileVariation variation = tile.getVariation();
+				if (variation instanceof Resource)
+					newTile.setVariation(new Resource(newTile, ((Resource)variation).getResourceType()));
+				else if (variation instanceof Improvement) {
+					Improvement improvement = (Improvement)variation;
+					newTile.setVariation(new Improvement(newTile, improvement.getImprovementType(), improvement.getLevel()));
+				}
+				else if (variation instanceof City)
+					newTile.setVariation(cities.get(variation));
+			}
+		}
+
+		/* Tiles are owned by the cities whose territory they are in */
+		for (City city : cities.keySet()) {
+			City newCity = cities.get(city);
+			for (Tile tile : city.getTerritory()) {
+				Tile newTile = newGrid[tile.getX()][tile.getY()];
+				newTile.setOwnerCity(newCity);
+				newCity.getTerritory().add(newTile);
+			}
+			for (Unit unit : city.getUnits())
+				newCity.getUnits().add(copyUnit(unit, copy, newGrid, cities, units));
+		}
+
+		copy.map = new TileMap(map, newGrid);
+		copy.zoneOfControl = new ZoneOfControl(zoneOfControl);
+		copy.ai = new AI(copy);
+		return copy;
+	}
+
+	/* The copy of UNIT in COPY, made on first use. */
+	private static Unit copyUnit(Unit unit, GameState copy, Tile[][] newGrid, 
+								IdentityHashMap<City, City> cities, IdentityHashMap<Unit, Unit> units) {
+		Unit newUnit = units.get(unit);
+		if (newUnit != null)
+			return newUnit;
+
+		newUnit = new Unit(unit, copy.players[unit.getOwnerPlayer().getPlayerId()]);
+		units.put(unit, newUnit);
+		if (unit.getPosition() != null)
+			newUnit.setPosition(newGrid[unit.getPosition().getX()][unit.getPosition().getY()]);
+		if (unit.getOwnerCity() != null)
+			newUnit.setOwnerCity(cities.get(unit.getOwnerCity()));
+		if (unit.getCarryUnit() != null)
+			newUnit.setCarryUnit(copyUnit(unit.getCarryUnit(), copy, newGrid, cities, units));
+		return newUnit;
+	}
+
+	public TileMap getMap() {return this.map;}
+	public Player[] getPlayers() {return this.players;}
+	public AI getAI() {return this.ai;}
+	public ZoneOfControl getZoneOfControl() {return this.zoneOfControl;}
+	public ActionCache getActionCache() {return this.actionCache;}
+	public boolean isHeadless() {return this.headless;}
+
+	public long getSeed() {return this.seed;}
+	public long getApplied() {return this.applied;}
+	public SplittableRandom getRandom() {return this.random;}
+
+	/* Draw other outcomes from now on, e.g. in a copy bots look ahead in. */
+	public void setSeed(long seed) {
+		this.seed = seed;
+		reseed();
+	}
+
+	/* An Action is about to be applied, see Action::apply(). */
+	void nextAction() {
+		applied++;
+		reseed();
+	}
+
+	/* The Actions applied since APPLIED threw, see Action::apply(). */
+	void dropActions(long applied) {
+		this.applied = applied;
+	}
+
+	private void reseed() {
+		random = new SplittableRandom(new SplittableRandom(seed).nextLong() ^ applied);
+	}
+
+	/* Shuffle LIST with the randomness of this game, like Collections::shuffle(). */
+	public void shuffle(List<?> list) {
+		for (int i = list.size() - 1; i > 0; i--)
+			Collections.swap(list, i, random.nextInt(i + 1));
+	}
+
+	public int getTurn() {return this.turn;}
+	public Player getHumanPlayer() {return players[0];}
+	public Player getCurrentPlayer() {return players[currentPlayerId];}
+
+	public void nextPlayer() {
+		if (currentPlayerId+1 == players.length) {
+			currentPlayerId = 0;
+			turn++;
+		}
+		else
+			currentPlayerId++;
+
+		// In headless mode, simulate() drives the players instead
+		if (!headless)
+			this.getCurrentPlayer().play();
+	}
+
+	/* Play the headless game turn by turn, back-to-back on the calling thread,
+	   until MAXTURNS is exceeded or the game is over. */
+	public void simulate(int maxTurns) {
+		while (turn <= maxTurns && !isOver())
+			this.getCurrentPlayer().play();
+	}
+
+	/* The game is over when at most one player still owns cities. */
+	public boolean isOver() {
+		int alive = 0;
+		for (Player player : players)
+			if (!player.getCities().isEmpty())
+				alive++;
+		return alive <= 1;
+	}
+}
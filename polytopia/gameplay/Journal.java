@@ -0,0 +1,300 @@
+package polytopia.gameplay;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+
+import polytopia.gameplay.Player.Tech;
+import polytopia.gameplay.Unit.UnitType;
+
+/** An append-only log of the Actions applied to a game, memory-mapped so that
+	logging one is a few stores, and checkpoints of the game it was logged for.
+	A record holds the kind of the Action, the player who applied it, the Tiles it
+	is performed on and towards, and e.g. the Tech it unlocks; an Action is found
+	again in a replayed game from these. The game is saved (see SaveGame) when the
+	journal is created, as the origin, and every CHECKPOINT_INTERVAL Actions.
+	The records survive the process: a crashed game is recovered from the last
+	checkpoint and the records after it, and any game is rebuilt by replaying all
+	of them from the origin. Replays are headless, so nothing is animated, and draw
+	the same as the original, as checkpoints save where the randomness is at. */
+public class Journal {
+
+	private static final int MAGIC = 0x50544a4e;	// "PTJN"
+	private static final int VERSION = 1;
+
+	/* Header: MAGIC, VERSION, the seed of the game, and the number of records; the records
+	   follow. Records are counted once their top-level Action has been applied, so that
+	   neither a torn record nor the record of an Action that threw is ever read. */
+	private static final int SEED_OFFSET = 8;
+	private static final int COUNT_OFFSET = 16;
+	private static final int HEADER = 24;
+	/* Kind, player, argument, subject x and y, target x and y (-1 for no Tile). */
+	private static final int RECORD = 12;
+
+	/* Actions applied between two checkpoints. */
+	public static final int CHECKPOINT_INTERVAL = 256;
+
+	/* The kinds of Actions, by index in the records; only append to this list. */
+	private static final List<String> KINDS = Arrays.asList(
+		"ActionHarvestFruit", "ActionFishing", "ActionHunting", "ActionFarming",
+		"ActionMining", "ActionWhaling", "ActionBuildLumberHut", "ActionBuildPort",
+		"ActionBuildSawmill", "ActionBuildForge", "ActionBuildWindmill", "ActionBuildCustomsHouse",
+		"ActionBuildTemple", "ActionBuildForestTemple", "ActionBuildAquaTemple", "ActionBuildMountainTemple",
+		"ActionDestroyImprovement", "ActionClearForest", "ActionGrowForest", "ActionBurnForest",
+		"ActionUnlockTech", "ActionUnitUpgrade", "ActionUnitMove", "ActionUnitAttack",
+		"ActionUnitRecover", "ActionUnitHeal", "ActionUnitConvert", "ActionUnitDisband",
+		"ActionUpgradeBoat", "ActionUpgradeShip", "ActionCaptureValuableTile", "ActionTrainUnit",
+		"ActionStartTurn", "ActionEndTurn");
+
+	private final File file;
+	private final GameState state;
+	private FileChannel channel;
+	private MappedByteBuffer buffer;
+	private long count;
+	/* Actions being applied, e.g. the ActionStartTurn of the next player within an
+	   ActionEndTurn; the game is only checkpointed in between top-level Actions. */
+	private int depth = 0;
+	private long checkpointed;
+
+	private Journal(File file, GameState state, FileChannel channel, long count, long checkpointed) throws IOException {
+		this.file = file;
+		this.state = state;
+		this.channel = channel;
+		this.count = count;
+		this.checkpointed = checkpointed;
+		this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0,
+			Long.max(channel.size(), HEADER + 4096L * RECORD));
+	}
+
+	/* Start logging the Actions applied to STATE in FILE, with STATE as the origin. */
+	public static Journal create(File file, GameState state) throws IOException {
+		FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+			StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+		Journal journal = new Journal(file, state, channel, 0, 0);
+		journal.buffer.putInt(0, MAGIC);
+		journal.buffer.putShort(4, (short)VERSION);
+		journal.buffer.putLong(SEED_OFFSET, state.getSeed());
+		journal.buffer.putLong(COUNT_OFFSET, 0);
+		writeCheckpoint(getOrigin(file), state, 0);
+		writeCheckpoint(getCheckpoint(file), state, 0);
+		return journal;
+	}
+
+	/* Go on logging the Actions applied to STATE in FILE, where STATE was recovered from. */
+	public static Journal open(File file, GameState state) throws IOException {
+		FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE);
+		ByteBuffer header = readHeader(channel);
+		long count = header.getLong(COUNT_OFFSET);
+		Journal journal = new Journal(file, state, channel, count, count);
+		// Later checkpoints include the records of the recovered game
+		journal.checkpoint();
+		return journal;
+	}
+
+	/* Rebuild the game logged in FILE by replaying every record from the origin. */
+	public static GameState replay(File file, boolean headless) throws IOException {
+		return load(file, getOrigin(file), headless);
+	}
+
+	/* Recover the game logged in FILE from the last checkpoint and the records after it. */
+	public static GameState recover(File file, boolean headless) throws IOException {
+		return load(file, getCheckpoint(file), headless);
+	}
+
+	public static boolean exists(File file) {
+		return file.exists() && getCheckpoint(file).exists();
+	}
+
+	/* The seed of the game logged in FILE, e.g. to tell whether a save is of the same game. */
+	public static long getSeed(File file) throws IOException {
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			return readHeader(channel).getLong(SEED_OFFSET);
+		}
+	}
+
+	/* Log ACTION, about to be applied by PLAYER. Returns the number of records before it,
+	   to pass to end(). */
+	long begin(Action action, Player player) {
+		int kind = KINDS.indexOf(action.getClass().getSimpleName());
+		if (kind < 0)
+			throw new IllegalArgumentException("cannot log " + action.getClass().getName());
+		try {ensureCapacity();}
+		catch (IOException e) {throw new UncheckedIOException(e);}
+
+		int position = (int)(HEADER + count * RECORD);
+		Tile subject = action.getSubject(), target = action.getTarget();
+		buffer.put(position, (byte)kind);
+		buffer.put(position + 1, (byte)player.getPlayerId());
+		buffer.putShort(position + 2, (short)action.getArgument());
+		buffer.putShort(position + 4, (short)(subject != null ? subject.getX() : -1));
+		buffer.putShort(position + 6, (short)(subject != null ? subject.getY() : -1));
+		buffer.putShort(position + 8, (short)(target != null ? target.getX() : -1));
+		buffer.putShort(position + 10, (short)(target != null ? target.getY() : -1));
+		depth++;
+		return count++;
+	}
+
+	/* The Action logged by the begin() that returned START is applied, or threw if not
+	   PERFORMED, in which case its record and those of the Actions within it are dropped. */
+	void end(long start, boolean performed) {
+		if (!performed)
+			count = start;
+		if (--depth > 0)
+			return;
+		buffer.putLong(COUNT_OFFSET, count);
+		if (count - checkpointed >= CHECKPOINT_INTERVAL) {
+			try {checkpoint();}
+			catch (IOException e) {e.printStackTrace();}
+		}
+	}
+
+	/* Save the game as the checkpoint to recover from, e.g. along with saving it
+	   elsewhere. Only call in between Actions, e.g. on the game thread. */
+	public void checkpoint() throws IOException {
+		buffer.force();
+		writeCheckpoint(getCheckpoint(file), state, count);
+		checkpointed = count;
+	}
+
+	public void close() throws IOException {
+		buffer.force();
+		channel.close();
+	}
+
+	private void ensureCapacity() throws IOException {
+		long needed = HEADER + (count + 1) * RECORD;
+		if (needed > buffer.capacity()) {
+			long capacity = buffer.capacity();
+			while (capacity < needed)
+				capacity *= 2;
+			if (capacity > Integer.MAX_VALUE)
+				throw new IOException("journal is full");
+			buffer.force();
+			buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+		}
+	}
+
+	private static File getOrigin(File file) {
+		return new File(file.getPath() + ".origin");
+	}
+
+	private static File getCheckpoint(File file) {
+		return new File(file.getPath() + ".checkpoint");
+	}
+
+	/* A checkpoint is the number of records it includes, then the saved game.
+	   It replaces the previous one at once, so a crash leaves one or the other. */
+	private static void writeCheckpoint(File checkpoint, GameState state, long count) throws IOException {
+		File temp = new File(checkpoint.getPath() + ".tmp");
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)))) {
+			out.writeLong(count);
+			SaveGame.write(state, out, true);
+		}
+		Files.move(temp.toPath(), checkpoint.toPath(),
+			StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	private static ByteBuffer readHeader(FileChannel channel) throws IOException {
+		ByteBuffer header = ByteBuffer.allocate(HEADER);
+		while (header.hasRemaining() && channel.read(header, header.position()) >= 0);
+		if (header.hasRemaining() || header.getInt(0) != MAGIC)
+			throw new IOException("not a journal");
+		int version = header.getShort(4);
+		if (version != VERSION)
+			throw new IOException("unsupported journal version " + version);
+		return header;
+	}
+
+	/* Load CHECKPOINT and apply the records of FILE after it. */
+	private static GameState load(File file, File checkpoint, boolean headless) throws IOException {
+		GameState state;
+		long from;
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(checkpoint)))) {
+			from = in.readLong();
+			state = SaveGame.read(in, headless);
+		}
+		// Whether or not the game will be shown, the records are replayed headless
+		state.setHeadless(true);
+
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			long count = readHeader(channel).getLong(COUNT_OFFSET);
+			if (count < from)
+				throw new IOException("journal is older than its checkpoint");
+			if (count > from) {
+				ByteBuffer records = channel.map(FileChannel.MapMode.READ_ONLY,
+					HEADER + from * RECORD, (count - from) * RECORD);
+				for (long i = from; i < count; i++) {
+					int position = (int)((i - from) * RECORD);
+					try {
+						Player player = state.getPlayers()[records.get(position + 1)];
+						getAction(state, records, position).apply(player);
+					} catch (RuntimeException e) {
+						throw new IOException("journal does not match the game at record " + i, e);
+					}
+				}
+			}
+		}
+
+		state.setHeadless(headless);
+		return state;
+	}
+
+	/* The Action of the record at POSITION of RECORDS, in STATE. */
+	private static Action getAction(GameState state, ByteBuffer records, int position) throws IOException {
+		int kind = records.get(position);
+		int argument = records.getShort(position + 2);
+		Tile subject = getTile(state, records.getShort(position + 4), records.getShort(position + 6));
+		Tile target = getTile(state, records.getShort(position + 8), records.getShort(position + 10));
+		switch (kind >= 0 && kind < KINDS.size() ? KINDS.get(kind) : "") {
+			case "ActionHarvestFruit": return new ActionHarvestFruit((Resource)subject.getVariation());
+			case "ActionFishing": return new ActionFishing((Resource)subject.getVariation());
+			case "ActionHunting": return new ActionHunting((Resource)subject.getVariation());
+			case "ActionFarming": return new ActionFarming((Resource)subject.getVariation());
+			case "ActionMining": return new ActionMining((Resource)subject.getVariation());
+			case "ActionWhaling": return new ActionWhaling((Resource)subject.getVariation());
+			case "ActionBuildLumberHut": return new ActionBuildLumberHut(subject);
+			case "ActionBuildPort": return new ActionBuildPort(subject);
+			case "ActionBuildSawmill": return new ActionBuildSawmill(subject);
+			case "ActionBuildForge": return new ActionBuildForge(subject);
+			case "ActionBuildWindmill": return new ActionBuildWindmill(subject);
+			case "ActionBuildCustomsHouse": return new ActionBuildCustomsHouse(subject);
+			case "ActionBuildTemple": return new ActionBuildTemple(subject);
+			case "ActionBuildForestTemple": return new ActionBuildForestTemple(subject);
+			case "ActionBuildAquaTemple": return new ActionBuildAquaTemple(subject);
+			case "ActionBuildMountainTemple": return new ActionBuildMountainTemple(subject);
+			case "ActionDestroyImprovement": return new ActionDestroyImprovement((Improvement)subject.getVariation());
+			case "ActionClearForest": return new ActionClearForest(subject);
+			case "ActionGrowForest": return new ActionGrowForest(subject);
+			case "ActionBurnForest": return new ActionBurnForest(subject);
+			case "ActionUnlockTech": return new ActionUnlockTech(Tech.values()[argument]);
+			case "ActionUnitUpgrade": return new ActionUnitUpgrade(subject.getUnit());
+			case "ActionUnitMove": return new ActionUnitMove(subject.getUnit(), target);
+			case "ActionUnitAttack": return new ActionUnitAttack(subject.getUnit(), target.getUnit());
+			case "ActionUnitRecover": return new ActionUnitRecover(subject.getUnit());
+			case "ActionUnitHeal": return new ActionUnitHeal(subject.getUnit());
+			case "ActionUnitConvert": return new ActionUnitConvert(subject.getUnit(), target.getUnit());
+			case "ActionUnitDisband": return new ActionUnitDisband(subject.getUnit());
+			case "ActionUpgradeBoat": return new ActionUpgradeBoat(subject.getUnit());
+			case "ActionUpgradeShip": return new ActionUpgradeShip(subject.getUnit());
+			case "ActionCaptureValuableTile": return new ActionCaptureValuableTile(subject.getUnit());
+			case "ActionTrainUnit": return new ActionTrainUnit((City)subject.getVariation(), UnitType.values()[argument]);
+			case "ActionStartTurn": return new ActionStartTurn();
+			case "ActionEndTurn": return new ActionEndTurn();
+			default: throw new IOException("unknown action kind " + kind);
+		}
+	}
+
+	private static Tile getTile(GameState state, int x, int y) throws IOException {
+		if (x < 0)
+			return null;
+		if (!TileMap.isValid(state.getMap().getGrid(), x, y))
+			throw new IOException("journal does not match the game");
+		return state.getMap().getGrid()[x][y];
+	}
+}
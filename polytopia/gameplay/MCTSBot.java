@@ -0,0 +1,275 @@
+package polytopia.gameplay;
+
+import java.util.ArrayList;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import polytopia.gameplay.Player.Tech;
+
+/** Monte Carlo tree search bot, built on the phases of the AI pipeline.
+	A turn is planned as a few decisions on how the AI phases are played: how
+	aggressively units are commanded, and whether units are trained, techs are
+	unlocked and the economy is developed this turn. The first option of every
+	decision is what the AI does. A tree over these decisions is searched with
+	UCT: an iteration plays the turn along a path of the tree on a copy of the
+	game (GameState::copy()), with the AI's options below it, lets the AI play
+	the opponents' turns up to ours again, and scores the result against the
+	best opponent. Each worker thread searches its own tree on its own copies,
+	and the trees are summed up. The plan follows the most visited options, and
+	the AI's own option among equals, so that a bot short on time plays like
+	the AI. */
+public class MCTSBot {
+
+	/* UCT exploration constant, for values in [0, 1]. */
+	private static final double EXPLORATION = 1.4;
+	/* Score difference that maps to about 0.88 of the value range. */
+	private static final double SCORE_SCALE = 30;
+
+	/* The decisions of a plan, by depth in the tree, and how many options each has.
+	   Option 0 is what the AI does; the others of TRAIN, TECH and ECONOMY skip the phase. */
+	private static final int COMMAND = 0, TRAIN = 1, TECH = 2, ECONOMY = 3;
+	private static final int[] OPTIONS = {3, 2, 2, 2};
+	/* AI::extraValueForCommand of the COMMAND options: how much units seek enemies. */
+	private static final int[] AGGRESSION = {2, 0, 6};
+
+	/* One option in the tree. */
+	private static class Node {
+		final int index;
+		Node[] children = null;
+		int visits = 0;
+		double value = 0;
+
+		Node(int index) {
+			this.index = index;
+		}
+
+		double getMean() {return visits == 0 ? 0 : value / visits;}
+
+		/* The most visited child, the first among equals. */
+		Node getBest() {
+			Node best = children[0];
+			for (Node child : children)
+				if (child.visits > best.visits)
+					best = child;
+			return best;
+		}
+
+		/* Add the visits of OTHER, the same node in another tree. */
+		void merge(Node other) {
+			visits += other.visits;
+			value += other.value;
+			if (other.children == null)
+				return;
+			if (children == null) {
+				children = other.children;
+				return;
+			}
+			for (int i = 0; i < children.length; i++)
+				children[i].merge(other.children[i]);
+		}
+	}
+
+	private final long budgetNanos;
+	private final int threads;
+	private final ExecutorService pool;
+	private final SplittableRandom seeds;
+
+	/* A bot that spends about BUDGETMILLIS per turn, searching on THREADS threads.
+	   The copies it looks ahead in draw their randomness from SEED. */
+	public MCTSBot(long budgetMillis, int threads, long seed) {
+		this.budgetNanos = budgetMillis * 1000000;
+		this.threads = threads;
+		this.seeds = new SplittableRandom(seed);
+		this.pool = Executors.newFixedThreadPool(threads, r -> {
+			Thread t = new Thread(r, "mcts-worker");
+			t.setDaemon(true);
+			return t;
+		});
+	}
+
+	/* Stop the worker threads, once the bot no longer plays. */
+	public void shutdown() {
+		pool.shutdownNow();
+	}
+
+	/* Play one turn for PLAYER, the current player, and end it.
+	   ActionStartTurn has already been applied by Player::play(). */
+	public void play(Player player) {
+		GameState state = player.getGameState();
+		int[] plan = search(state, player.getPlayerId(), System.nanoTime() + budgetNanos);
+		playPlan(state, player.getPlayerId(), plan);
+		new ActionEndTurn().apply(player);
+	}
+
+	/* Play the phases of the turn of PLAYERID in STATE as PLAN says, without ending it. */
+	private static void playPlan(GameState state, int playerId, int[] plan) {
+		AI ai = state.getAI();
+		int aggression = ai.extraValueForCommand;
+		ai.extraValueForCommand = AGGRESSION[plan[COMMAND]];
+		try {
+			for (int phase = 0; phase < AI.PHASES; phase++) {
+				if ((phase == AI.TRAIN_UNITS && plan[TRAIN] != 0)
+						|| (phase == AI.UNLOCK_TECH && plan[TECH] != 0)
+						|| (phase == AI.DEVELOP_ECONOMY && plan[ECONOMY] != 0))
+					continue;
+				ai.decidePhase(phase, playerId);
+			}
+		} finally {
+			ai.extraValueForCommand = aggression;
+		}
+	}
+
+	/* Search the plan of the turn of PLAYERID from STATE until DEADLINE on every worker,
+	   and return the options picked. Every worker iterates at least once. */
+	private int[] search(GameState state, int playerId, long deadline) {
+		ArrayList<Future<Node>> futures = new ArrayList<>();
+		for (int i = 0; i < threads; i++) {
+			long seed = seeds.nextLong();
+			futures.add(pool.submit(() -> new Worker(state.copy(), playerId, seed).search(deadline)));
+		}
+
+		Node merged = new Node(-1);
+		try {
+			for (Future<Node> future : futures)
+				merged.merge(future.get());
+		} catch (InterruptedException | ExecutionException e) {
+			throw new RuntimeException(e);
+		}
+
+		int[] plan = new int[OPTIONS.length];
+		Node node = merged;
+		for (int depth = 0; depth < plan.length && node.children != null; depth++) {
+			node = node.getBest();
+			plan[depth] = node.index;
+		}
+		return plan;
+	}
+
+	/* Material score of PLAYER: cities, techs, units and economy, in units of stars.
+	   Unspent stars count for little, so that they are put to use, and cities
+	   that enemy units could walk into count for less. */
+	static double getScore(Player player) {
+		double score = 0.2 * player.getStars() + 3 * player.getStarsPerTurn();
+		for (City city : player.getCities()) {
+			score += 10 * city.getLevel() + 2 * city.getPopulation();
+			if (isThreatened(city))
+				score -= 5 * city.getLevel();
+		}
+		for (Tech tech : player.getTechs())
+			score += 1 + tech.rank;
+		for (Unit unit : player.getUnits())
+			score += 2.5 * unit.getCost() * unit.getHealth() / unit.getMaxHealth();
+		score += 0.25 * player.getVision().size();
+		return score;
+	}
+
+	/* Whether CITY is left without a unit of its own, with enemy units next to it. */
+	static boolean isThreatened(City city) {
+		Tile center = city.getOwnerTile();
+		if (center.getUnit() != null && center.getUnit().getOwnerPlayer() == city.getOwnerPlayer())
+			return false;
+		Tile[][] grid = city.getOwnerPlayer().getGameState().getMap().getGrid();
+		for (Tile tile : TileMap.getInnerRing(grid, center.getX(), center.getY()))
+			if (tile.hasEnemy(city.getOwnerPlayer()))
+				return true;
+		return center.hasEnemy(city.getOwnerPlayer());
+	}
+
+	/* Score of PLAYER relative to its best opponent. */
+	static double evaluate(GameState state, int playerId) {
+		Player player = state.getPlayers()[playerId];
+		double opponent = Double.NEGATIVE_INFINITY;
+		for (Player other : state.getPlayers())
+			if (other != player && !other.getCities().isEmpty())
+				opponent = Double.max(opponent, getScore(other));
+		if (opponent == Double.NEGATIVE_INFINITY)
+			opponent = 0;
+		return getScore(player) - opponent;
+	}
+
+	/* One search thread, with its own copy of the game and its own tree. */
+	private static class Worker {
+		private final GameState base;
+		private final int playerId;
+		private final SplittableRandom rnd;
+		private final double baseValue;
+		private final Node root = new Node(-1);
+
+		Worker(GameState base, int playerId, long seed) {
+			this.base = base;
+			this.playerId = playerId;
+			this.rnd = new SplittableRandom(seed);
+			this.baseValue = evaluate(base, playerId);
+		}
+
+		Node search(long deadline) {
+			do {
+				iterate();
+			} while (System.nanoTime() < deadline);
+			return root;
+		}
+
+		private void iterate() {
+			GameState state = base.copy();
+			state.getAI().doSleep = 0;
+			// Look ahead into other outcomes than the game will draw
+			state.setSeed(rnd.nextLong());
+			ArrayList<Node> path = new ArrayList<>();
+			path.add(root);
+
+			/* Selection and expansion: follow the tree until a new node is added.
+			   The decisions below it take the AI's option. */
+			int[] plan = new int[OPTIONS.length];
+			Node node = root;
+			for (int depth = 0; depth < plan.length; depth++) {
+				if (node.children == null) {
+					node.children = new Node[OPTIONS[depth]];
+					for (int i = 0; i < OPTIONS[depth]; i++)
+						node.children[i] = new Node(i);
+				}
+				node = select(node);
+				plan[depth] = node.index;
+				path.add(node);
+				if (node.visits == 0)
+					break;
+			}
+
+			/* Rollout: play the turn by the plan, then the AI plays the opponents' turns */
+			Player player = state.getPlayers()[playerId];
+			playPlan(state, playerId, plan);
+			new ActionEndTurn().apply(player);
+			while (state.getCurrentPlayer() != player && !state.isOver()) {
+				Player next = state.getCurrentPlayer();
+				if (state.getTurn() > 1)
+					new ActionStartTurn().apply(next);
+				state.getAI().decideActionsForAI(next.getPlayerId());
+			}
+
+			double value = 0.5 + 0.5 * Math.tanh((evaluate(state, playerId) - baseValue) / SCORE_SCALE);
+			for (Node visited : path) {
+				visited.visits++;
+				visited.value += value;
+			}
+		}
+
+		/* UCT, trying unvisited children first, the AI's option first of all. */
+		private Node select(Node node) {
+			Node best = null;
+			double bestScore = Double.NEGATIVE_INFINITY;
+			for (Node child : node.children) {
+				if (child.visits == 0)
+					return child;
+				double score = child.getMean()
+								+ EXPLORATION * Math.sqrt(Math.log(node.visits) / child.visits);
+				if (score > bestScore) {
+					bestScore = score;
+					best = child;
+				}
+			}
+			return best;
+		}
+	}
+}
@@ -1,22 +1,21 @@
 package polytopia.gameplay;
 
 import java.util.ArrayList;
-import java.util.HashSet;
-import java.awt.Color;
 
 import polytopia.graphics.Render.BoundaryLine;
 
 public class Player {
 
 	public enum Faction {
-		Xinxi (Color.RED), 
-		Imperius (Color.BLUE), 
-		Bardur (Color.DARK_GRAY), 
-		Oumaji (Color.YELLOW);
-
-		public final Color themeColor;
-		Faction(Color color) {
-			this.themeColor = color;
+		Xinxi (0xFF0000), 		// RED
+		Imperius (0x0000FF), 	// BLUE
+		Bardur (0x404040), 		// DARK_GRAY
+		Oumaji (0xFFFF00);		// YELLOW
+
+		/* Kept as RGB, so that headless games never load java.awt.Color. */
+		public final int themeRGB;
+		Faction(int rgb) {
+			this.themeRGB = rgb;
 		}
 	}
 
@@ -118,11 +117,15 @@ public class Player {
 	private City capital = null;
 	private ArrayList<City> cities = null;
 	private ArrayList<Unit> units = null;
-	private HashSet<Tile> vision = null;
+	private Vision vision = null;
 	private boolean isBot;
 	private int playerId;
+	private GameState state;
+	/* If set, this bot plays instead of the game's AI. */
+	private MCTSBot mctsBot = null;
 
-	public Player(String factionName, int playerId, boolean isBot) {
+	public Player(GameState state, String factionName, int playerId, boolean isBot) {
+		this.state = state;
 		this.faction = Faction.valueOf(factionName);
 		this.stars = isBot ? 10 : 5;
 		this.techs = new ArrayList<Tech>();
@@ -134,14 +137,30 @@ public class Player {
 			case Oumaji: this.techs.add(Tech.RIDING); break;
 		}
 		this.cities = new ArrayList<City>();
-		this.vision = new HashSet<Tile>();
 		this.units = new ArrayList<Unit>();
 		this.actions = new Action[] {new ActionEndTurn()};
 		this.playerId = playerId;
 		this.isBot = isBot;
 	}
 
+	/* Copy of OTHER in the copied game STATE, for GameState::copy().
+	   Cities, units and vision are filled in by the caller. */
+	Player(Player other, GameState state) {
+		this.state = state;
+		this.faction = other.faction;
+		this.stars = other.stars;
+		this.techs = new ArrayList<Tech>(other.techs);
+		this.cities = new ArrayList<City>();
+		this.units = new ArrayList<Unit>();
+		this.actions = new Action[] {new ActionEndTurn()};
+		this.playerId = other.playerId;
+		this.isBot = other.isBot;
+	}
+
 	public boolean isBot() {return this.isBot;}
+	public void setMCTSBot(MCTSBot bot) {this.mctsBot = bot;}
+	public int getPlayerId() {return this.playerId;}
+	public GameState getGameState() {return this.state;}
 
 	public Faction getFaction() {return this.faction;}
 	public int getStars() {return this.stars;}
@@ -151,11 +170,14 @@ public class Player {
 	public City getCapital() {return this.capital;}
 	public ArrayList<City> getCities() {return this.cities;}
 	public ArrayList<Unit> getUnits() {return this.units;}
-	public HashSet<Tile> getVision() {return this.vision;}
+	public Vision getVision() {return this.vision;}
 
 	public void setCapital(City city) {this.capital = city;}
 	public void addCity(City city) {this.cities.add(city);}
 	public void addVision(Tile tile) {this.vision.add(tile);}
+	/* Vision is sized to the map, so it is set up once the map is generated. */
+	public void initVision(Tile[][] grid) {this.vision = new Vision(grid);}
+	void setVision(Vision vision) {this.vision = vision;}
 	public void addTech(Tech tech) {this.techs.add(tech);}
 
 	private Action[] actions;
@@ -165,28 +187,12 @@ public class Player {
 	}
 
 	public ArrayList<BoundaryLine> getBoundary(Player viewingPlayer){
-        ArrayList<BoundaryLine> lines = new ArrayList<BoundaryLine>();
-        int size = Game.map.getSize();
-        boolean[][] terri = new boolean[size][size];
-		for(City c : cities){
-			ArrayList<Tile> territory = c.getTerritory();
-			for(Tile t : territory){
-                terri[t.getY()][t.getX()] = true;
-			}
-		}
-        for(int i = 0; i < size; i++){
-            for(int j = 0; j < size; j++){
-                if(terri[i][j] == false
-					|| !viewingPlayer.getVision().contains(Game.map.getGrid()[j][i])) 
-					continue;
-                if(i - 1 < 0 || terri[i - 1][j] == false) lines.add(new BoundaryLine(i, j, BoundaryLine.Side.LEFTUP));
-                if(i + 1 >= size || terri[i + 1][j] == false) lines.add(new BoundaryLine(i, j, BoundaryLine.Side.RIGHTDOWN));
-                if(j - 1 < 0 || terri[i][j - 1] == false) lines.add(new BoundaryLine(i, j, BoundaryLine.Side.RIGHTUP));
-                if(j + 1 >= size || terri[i][j + 1] == false) lines.add(new BoundaryLine(i, j, BoundaryLine.Side.LEFTDOWN));
-            }
-        }
-        return lines;
-    }
+		ArrayList<BoundaryLine> lines = new ArrayList<BoundaryLine>();
+		for (City c : cities)
+			City.addBoundary(lines, c.getTerritory(), viewingPlayer,
+				t -> t.getOwnerCity() != null && t.getOwnerCity().getOwnerPlayer() == this);
+		return lines;
+	}
 
 	public int getStarsPerTurn() {
 		// Cities and CUSTOMS_HOUSEs give Stars Per Turn.
@@ -209,23 +215,41 @@ public class Player {
 	public void play() {
 
 		// Apply the start turn action
-		if (Game.getTurn() > 1)
+		if (state.getTurn() > 1)
 			new ActionStartTurn().apply(this);
 
+		resume();
+	}
+
+	/* Play the rest of a turn that has started, e.g. in a loaded game. */
+	public void resume() {
+
 		if (!this.isBot) {
 			Game.window.cancelSelection();
 			// Human player.
 			// TODO: A greeting message, if turn 0
 			// TODO: Release the BLOCK_ACTIONs lock, so that actions can be applied
 		}
+		else if (state.isHeadless()) {
+			// Headless bot player.
+			// Invoke AI on the calling thread, without animation waits.
+			state.getAI().doSleep = 0;
+			if (mctsBot != null)
+				mctsBot.play(this);
+			else
+				state.getAI().decideActionsForAI(this.playerId);
+		}
 		else {
 			// Bot player.
 			// Invoke AI to take actions.
 			
-			new Thread(()->{
-				AI.doSleep = 300;
-				AI.decideActionsForAI(this.playerId);
-			}).start();
+			Game.execute(()->{
+				state.getAI().doSleep = 300;
+				if (mctsBot != null)
+					mctsBot.play(this);
+				else
+					state.getAI().decideActionsForAI(this.playerId);
+			});
 			
 		}
 
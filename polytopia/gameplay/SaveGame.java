@@ -0,0 +1,341 @@
+package polytopia.gameplay;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+import polytopia.gameplay.Player.Faction;
+import polytopia.gameplay.Player.Tech;
+import polytopia.gameplay.Unit.Skill;
+import polytopia.gameplay.Unit.UnitType;
+
+/** Saving and loading of a whole game, in a versioned binary format.
+	After a header of MAGIC, VERSION and flags, the body (deflated if FLAG_DEFLATE)
+	holds the map settings and where the randomness of the game is at, then the players
+	with their techs as a bitmask and vision as the words of its bitmap, then every city
+	and every unit once, referred to by index, and finally one packed record per tile,
+	row by row.
+	A 256x256 game saves to some hundred KB, in a few milliseconds. */
+public class SaveGame {
+
+	private static final int MAGIC = 0x50545356;	// "PTSV"
+	private static final int VERSION = 1;
+	private static final int FLAG_DEFLATE = 1;
+
+	/* Tile records: terrain in bits 0-2, style (faction + 1, 0 for none) in bits 3-5,
+	   bit 6 if a unit stands on it; then the variation byte, see VARIATION_*, followed
+	   by the level of an improvement or the index of a city; then the index of the unit. */
+	private static final int HAS_UNIT = 1 << 6;
+	private static final int VARIATION_NONE = 0;
+	private static final int VARIATION_CITY = 1;
+	private static final int VARIATION_RESOURCE = 2;
+	private static final int VARIATION_IMPROVEMENT = VARIATION_RESOURCE + Resource.ResourceType.values().length;
+
+	/* Unit flags. */
+	private static final int MOVABLE = 1, ATTACKABLE = 2, VETERAN = 4, FLIPPED = 8;
+	/* A skill slot a unit lost. */
+	private static final int NO_SKILL = 0xFF;
+	/* City flags. */
+	private static final int WALL = 1, WORKSHOP = 2, CAPITAL = 4;
+
+	public static void write(GameState state, File file, boolean deflate) throws IOException {
+		try (OutputStream out = new FileOutputStream(file)) {
+			write(state, out, deflate);
+		}
+	}
+
+	public static GameState read(File file, boolean headless) throws IOException {
+		try (InputStream in = new FileInputStream(file)) {
+			return read(in, headless);
+		}
+	}
+
+	public static void write(GameState state, OutputStream out, boolean deflate) throws IOException {
+		DataOutputStream header = new DataOutputStream(out);
+		header.writeInt(MAGIC);
+		header.writeShort(VERSION);
+		header.writeByte(deflate ? FLAG_DEFLATE : 0);
+		header.flush();
+
+		Deflater deflater = deflate ? new Deflater(Deflater.BEST_SPEED) : null;
+		OutputStream body = deflate ? new DeflaterOutputStream(out, deflater, 1 << 16) : out;
+		DataOutputStream data = new DataOutputStream(new BufferedOutputStream(body, 1 << 16));
+		try {
+			writeBody(state, data);
+			data.flush();
+			if (deflate)
+				((DeflaterOutputStream) body).finish();
+		} finally {
+			if (deflater != null)
+				deflater.end();
+		}
+	}
+
+	public static GameState read(InputStream in, boolean headless) throws IOException {
+		DataInputStream header = new DataInputStream(in);
+		if (header.readInt() != MAGIC)
+			throw new IOException("not a saved game");
+		int version = header.readUnsignedShort();
+		if (version != VERSION)
+			throw new IOException("unsupported save version " + version);
+		int flags = header.readUnsignedByte();
+
+		InputStream body = (flags & FLAG_DEFLATE) != 0 ? new InflaterInputStream(in, new Inflater(), 1 << 16) : in;
+		return readBody(new DataInputStream(new BufferedInputStream(body, 1 << 16)), headless);
+	}
+
+	private static void writeBody(GameState state, DataOutputStream data) throws IOException {
+		TileMap map = state.getMap();
+		Tile[][] grid = map.getGrid();
+		int size = map.getSize();
+		Player[] players = state.getPlayers();
+
+		data.writeShort(size);
+		data.writeInt(map.getSeed());
+		data.writeUTF(map.getMapType());
+		data.writeInt(state.getTurn());
+		data.writeByte(state.getCurrentPlayer().getPlayerId());
+		data.writeLong(state.getSeed());
+		data.writeLong(state.getApplied());
+
+		// Index every city and unit, in the order they are met
+		ArrayList<City> cities = new ArrayList<>();
+		IdentityHashMap<City, Integer> cityIds = new IdentityHashMap<>();
+		for (Player player : players)
+			for (City city : player.getCities()) {
+				cityIds.put(city, cities.size());
+				cities.add(city);
+			}
+		ArrayList<Unit> units = new ArrayList<>();
+		IdentityHashMap<Unit, Integer> unitIds = new IdentityHashMap<>();
+		for (Player player : players)
+			for (Unit unit : player.getUnits())
+				indexUnit(unit, units, unitIds);
+		for (City city : cities)
+			for (Unit unit : city.getUnits())
+				indexUnit(unit, units, unitIds);
+		for (Tile[] row : grid)
+			for (Tile tile : row)
+				if (tile.getUnit() != null)
+					indexUnit(tile.getUnit(), units, unitIds);
+
+		data.writeByte(players.length);
+		for (Player player : players) {
+			data.writeByte(player.getFaction().ordinal());
+			data.writeBoolean(player.isBot());
+			data.writeInt(player.getStars());
+			long techs = 0;
+			for (Tech tech : player.getTechs())
+				techs |= 1L << tech.ordinal();
+			data.writeLong(techs);
+			long[] vision = player.getVision().toLongArray();
+			data.writeInt(vision.length);
+			for (long word : vision)
+				data.writeLong(word);
+		}
+
+		data.writeInt(cities.size());
+		for (City city : cities) {
+			data.writeByte(city.getOwnerPlayer().getPlayerId());
+			data.writeShort(city.getOwnerTile().getX());
+			data.writeShort(city.getOwnerTile().getY());
+			data.writeUTF(city.getName());
+			data.writeByte(city.getLevel());
+			data.writeInt(city.getPopulation());
+			data.writeByte((city.hasWall() ? WALL : 0) | (city.hasWorkshop() ? WORKSHOP : 0)
+							| (city.getOwnerPlayer().getCapital() == city ? CAPITAL : 0));
+			data.writeInt(city.getTerritory().size());
+			for (Tile tile : city.getTerritory())
+				data.writeInt(tile.getX() * size + tile.getY());
+		}
+
+		data.writeInt(units.size());
+		for (Unit unit : units) {
+			data.writeByte(unit.getType().ordinal());
+			data.writeByte(unit.getOwnerPlayer().getPlayerId());
+			data.writeInt(unit.getOwnerCity() == null ? -1 : cityIds.getOrDefault(unit.getOwnerCity(), -1));
+			data.writeInt(unit.getPosition() == null ? -1 : unit.getPosition().getX() * size + unit.getPosition().getY());
+			data.writeInt(unit.getCarryUnit() == null ? -1 : unitIds.get(unit.getCarryUnit()));
+			data.writeShort(unit.getHealth());
+			data.writeShort(unit.getKills());
+			data.writeByte((unit.isMovable() ? MOVABLE : 0) | (unit.isAttackable() ? ATTACKABLE : 0)
+							| (unit.isVeteran() ? VETERAN : 0) | (unit.isFlipped() ? FLIPPED : 0));
+			data.writeByte(unit.getSkills().length);
+			for (Skill skill : unit.getSkills())
+				data.writeByte(skill == null ? NO_SKILL : skill.ordinal());
+		}
+		for (Player player : players)
+			writeUnitList(data, player.getUnits(), unitIds);
+		for (City city : cities)
+			writeUnitList(data, city.getUnits(), unitIds);
+
+		for (Tile[] row : grid)
+			for (Tile tile : row) {
+				data.writeByte(tile.getTerrainType().ordinal()
+								| (tile.getStyle() == null ? 0 : tile.getStyle().ordinal() + 1) << 3
+								| (tile.getUnit() != null ? HAS_UNIT : 0));
+				TileVariation variation = tile.getVariation();
+				if (variation instanceof Resource)
+					data.writeByte(VARIATION_RESOURCE + ((Resource) variation).getResourceType().ordinal());
+				else if (variation instanceof Improvement) {
+					data.writeByte(VARIATION_IMPROVEMENT + ((Improvement) variation).getImprovementType().ordinal());
+					data.writeByte(((Improvement) variation).getLevel());
+				}
+				else if (variation instanceof City) {
+					data.writeByte(VARIATION_CITY);
+					data.writeInt(cityIds.getOrDefault(variation, -1));
+				}
+				else
+					data.writeByte(VARIATION_NONE);
+				if (tile.getUnit() != null)
+					data.writeInt(unitIds.get(tile.getUnit()));
+			}
+	}
+
+	private static void indexUnit(Unit unit, ArrayList<Unit> units, IdentityHashMap<Unit, Integer> unitIds) {
+		while (unit != null && !unitIds.containsKey(unit)) {
+			unitIds.put(unit, units.size());
+			units.add(unit);
+			unit = unit.getCarryUnit();
+		}
+	}
+
+	private static void writeUnitList(DataOutputStream data, ArrayList<Unit> list,
+										IdentityHashMap<Unit, Integer> unitIds) throws IOException {
+		data.writeInt(list.size());
+		for (Unit unit : list)
+			data.writeInt(unitIds.get(unit));
+	}
+
+	private static GameState readBody(DataInputStream data, boolean headless) throws IOException {
+		int size = data.readUnsignedShort();
+		int seed = data.readInt();
+		String mapType = data.readUTF();
+		int turn = data.readInt();
+		int currentPlayerId = data.readUnsignedByte();
+		long gameSeed = data.readLong();
+		long applied = data.readLong();
+
+		GameState state = new GameState(headless);
+		Tile[][] grid = new Tile[size][size];
+		Player[] players = new Player[data.readUnsignedByte()];
+		for (int i = 0; i < players.length; i++) {
+			Faction faction = Faction.values()[data.readUnsignedByte()];
+			boolean isBot = data.readBoolean();
+			Player player = new Player(state, faction.toString(), i, headless || isBot);
+			player.setStars(data.readInt());
+			long techs = data.readLong();
+			player.getTechs().clear();
+			for (Tech tech : Tech.values())
+				if ((techs & 1L << tech.ordinal()) != 0)
+					player.getTechs().add(tech);
+			long[] vision = new long[data.readInt()];
+			for (int w = 0; w < vision.length; w++)
+				vision[w] = data.readLong();
+			player.setVision(new Vision(grid, vision));
+			players[i] = player;
+		}
+
+		// Tiles are created up front, then filled in from their records below
+		for (int x = 0; x < size; x++)
+			for (int y = 0; y < size; y++)
+				grid[x][y] = new Tile(x, y, null, null, null);
+
+		City[] cities = new City[data.readInt()];
+		for (int c = 0; c < cities.length; c++) {
+			Player owner = players[data.readUnsignedByte()];
+			Tile ownerTile = grid[data.readShort()][data.readShort()];
+			String name = data.readUTF();
+			int level = data.readUnsignedByte();
+			int population = data.readInt();
+			int flags = data.readUnsignedByte();
+			City city = new City(ownerTile, owner, name, level, population,
+								(flags & WALL) != 0, (flags & WORKSHOP) != 0);
+			owner.addCity(city);
+			if ((flags & CAPITAL) != 0)
+				owner.setCapital(city);
+			int territory = data.readInt();
+			for (int t = 0; t < territory; t++) {
+				int index = data.readInt();
+				Tile tile = grid[index / size][index % size];
+				tile.setOwnerCity(city);
+				city.getTerritory().add(tile);
+			}
+			cities[c] = city;
+		}
+
+		Unit[] units = new Unit[data.readInt()];
+		int[] carried = new int[units.length];
+		for (int u = 0; u < units.length; u++) {
+			UnitType type = UnitType.values()[data.readUnsignedByte()];
+			Player owner = players[data.readUnsignedByte()];
+			int city = data.readInt();
+			int position = data.readInt();
+			carried[u] = data.readInt();
+			int health = data.readShort();
+			int kills = data.readShort();
+			int flags = data.readUnsignedByte();
+			Skill[] skills = new Skill[data.readUnsignedByte()];
+			for (int s = 0; s < skills.length; s++) {
+				int skill = data.readUnsignedByte();
+				skills[s] = skill == NO_SKILL ? null : Skill.values()[skill];
+			}
+
+			Unit unit = new Unit(type, skills, owner);
+			unit.setHealth(health);
+			unit.setKills(kills);
+			unit.setMovable((flags & MOVABLE) != 0);
+			unit.setAttackable((flags & ATTACKABLE) != 0);
+			if ((flags & VETERAN) != 0)
+				unit.setVeteran();
+			unit.setFlipped((flags & FLIPPED) != 0);
+			if (city >= 0)
+				unit.setOwnerCity(cities[city]);
+			if (position >= 0)
+				unit.setPosition(grid[position / size][position % size]);
+			units[u] = unit;
+		}
+		for (int u = 0; u < units.length; u++)
+			if (carried[u] >= 0)
+				units[u].setCarryUnit(units[carried[u]]);
+		for (Player player : players)
+			readUnitList(data, player.getUnits(), units);
+		for (City city : cities)
+			readUnitList(data, city.getUnits(), units);
+
+		for (int x = 0; x < size; x++)
+			for (int y = 0; y < size; y++) {
+				Tile tile = grid[x][y];
+				int record = data.readUnsignedByte();
+				tile.setTerrainType(Tile.TerrainType.values()[record & 7]);
+				int style = (record >> 3) & 7;
+				tile.setStyle(style == 0 ? null : Faction.values()[style - 1]);
+
+				int variation = data.readUnsignedByte();
+				if (variation == VARIATION_CITY) {
+					int city = data.readInt();
+					tile.setVariation(city < 0 ? null : cities[city]);
+				}
+				else if (variation >= VARIATION_IMPROVEMENT)
+					tile.setVariation(new Improvement(tile,
+						Improvement.ImprovementType.values()[variation - VARIATION_IMPROVEMENT], data.readUnsignedByte()));
+				else if (variation >= VARIATION_RESOURCE)
+					tile.setVariation(new Resource(tile, Resource.ResourceType.values()[variation - VARIATION_RESOURCE]));
+				if ((record & HAS_UNIT) != 0)
+					tile.setUnit(units[data.readInt()]);
+			}
+
+		state.restore(new TileMap(seed, mapType, grid), players, turn, currentPlayerId, gameSeed, applied);
+		return state;
+	}
+
+	private static void readUnitList(DataInputStream data, ArrayList<Unit> list, Unit[] units) throws IOException {
+		int count = data.readInt();
+		for (int i = 0; i < count; i++)
+			list.add(units[data.readInt()]);
+	}
+}
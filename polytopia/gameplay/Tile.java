@@ -47,7 +47,7 @@ public class Tile implements Visualizable, Movable {
 	/* Describes the owner city of this tile. */
 	private City ownerCity;
 
-	private Action[] actions;
+	private volatile Action[] actions;
 
 	private Motion motion;
 
@@ -59,14 +59,6 @@ public class Tile implements Visualizable, Movable {
 		this.style = style;
 		this.unit = null;
 		this.ownerCity = null;
-
-		this.actions = new Action[] {new ActionBuildLumberHut(this), new ActionBuildPort(this), 
-									new ActionClearForest(this), new ActionBuildSawmill(this),
-									new ActionBuildForge(this), new ActionBuildWindmill(this), 
-									new ActionBuildCustomsHouse(this), new ActionBuildTemple(this),
-									new ActionBuildForestTemple(this), new ActionBuildAquaTemple(this),
-									new ActionBuildMountainTemple(this), new ActionBurnForest(this),
-									new ActionGrowForest(this)};
 	}
 
 	public int getX() {return this.x;}
@@ -85,7 +77,25 @@ public class Tile implements Visualizable, Movable {
 		return this.unit != null && this.unit.getOwnerPlayer() != player;
 	}
 
-	public Action[] getActions() {return this.actions;}
+	/* Created on first use: most tiles are never owned, and copies
+	   of the game (GameState::copy()) should not pay for them.
+	   The GameWindow and the game thread may both get here first. */
+	public Action[] getActions() {
+		Action[] actions = this.actions;
+		if (actions != null)
+			return actions;
+		synchronized (this) {
+			if (this.actions == null)
+				this.actions = new Action[] {new ActionBuildLumberHut(this), new ActionBuildPort(this), 
+											new ActionClearForest(this), new ActionBuildSawmill(this),
+											new ActionBuildForge(this), new ActionBuildWindmill(this), 
+											new ActionBuildCustomsHouse(this), new ActionBuildTemple(this),
+											new ActionBuildForestTemple(this), new ActionBuildAquaTemple(this),
+											new ActionBuildMountainTemple(this), new ActionBurnForest(this),
+											new ActionGrowForest(this)};
+			return this.actions;
+		}
+	}
 
 	public void setTerrainType(TerrainType type) {this.terrain = type;}
 	public void setVariation(TileVariation variation) {this.variation = variation;}
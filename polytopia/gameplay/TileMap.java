@@ -8,6 +8,7 @@ import javax.swing.*;
 import javax.imageio.*;
 import java.io.*;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.HashSet;
 import java.util.Random;
@@ -26,12 +27,34 @@ public class TileMap {
 	private int seed; 				/* Seed for generating grid. */
 	private String mapType;			/* Type of map generation. */
 
+	/* Scratch buffers for movement search on this map. */
+	private MovementSearch movementSearch;
+
 	public TileMap(int size, int seed, String mapType, Player[] players) {
 		this.size = size;
 		this.seed = seed;
 		this.mapType = mapType;
 
 		this.grid = MapGenerator.generate(size, seed, MapGenerator.MapType.valueOf(mapType), players);
+		this.movementSearch = new MovementSearch(size);
+	}
+
+	/* Copy of OTHER over the copied GRID, for GameState::copy(). */
+	TileMap(TileMap other, Tile[][] grid) {
+		this(other.seed, other.mapType, grid);
+	}
+
+	/* A map over the loaded GRID, for SaveGame::read(). */
+	TileMap(int seed, String mapType, Tile[][] grid) {
+		this.size = grid.length;
+		this.seed = seed;
+		this.mapType = mapType;
+		this.grid = grid;
+		this.movementSearch = new MovementSearch(size);
+	}
+
+	public int getSeed() {
+		return this.seed;
 	}
 
 
@@ -41,6 +64,10 @@ public class TileMap {
 	public String getMapType() {
 		return this.mapType.toString();
 	}
+	MovementSearch getMovementSearch() {
+		return this.movementSearch;
+	}
+
 	public int getSize() {
 		return this.size;
 	}
@@ -179,60 +206,23 @@ abstract class MapGenerator {
 			default: waterRatio = 0.32; break;
 		}
 
-		SimplexNoise.seed(seed);
-		double[][] heightMap = new double[mapHeight][mapWidth];
-		double lowb = 9999999, uppb = -9999990;
-		for (int i = 0; i < mapHeight; i++) {
-			for (int j = 0; j < mapWidth; j++) {
-				double value = SimplexNoise.noise((double)i/5, (double)j/5);
-				heightMap[i][j] = value;
-				lowb = Double.min(lowb, value);
-				uppb = Double.max(uppb, value);
-			}
-		}
+		double[][] heightMap = new SimplexNoise(seed).fill(mapHeight, mapWidth, 5);
+		double[] heights = new double[mapArea];
+		for (int i = 0; i < mapHeight; i++)
+			System.arraycopy(heightMap[i], 0, heights, i * mapWidth, mapWidth);
+		Arrays.sort(heights);
 
-		double l ,r ,mid;
-		final double err = 0.01;
-		
 		// Pick a height, so that waterRatio is satisfied
-		l = lowb; r = uppb; mid = (l + r) / 2;
-		while (r - l > err) {
-			int cnt = 0;
-			for (int i = 0; i < mapHeight; i++) 
-				for (int j = 0; j < mapWidth; j++) 
-					if (heightMap[i][j] < mid)
-						cnt++;
-			
-			if ((double)cnt / mapArea < waterRatio)
-				l = mid;
-			else
-				r = mid;
-			mid = (l + r) / 2;
-		}
-
-		double waterLevel = mid;
-		int landArea = mapArea;
-		for (int i = 0; i < mapHeight; i++) 
-			for (int j = 0; j < mapWidth; j++) 
-				if (heightMap[i][j] < waterLevel)
-					landArea--;
+		int landStart = (int)Math.round(waterRatio * mapArea);
+		double waterLevel = levelBelow(heights, landStart);
+		// Heights tied with the water level are land
+		landStart = Integer.min(landStart, mapArea);
+		while (landStart > 0 && heights[landStart - 1] >= waterLevel)
+			landStart--;
+		int landArea = mapArea - landStart;
 
 		// For non-water tiles, pick a height so that mountainRatio is satisfied
-		l = waterLevel; r = uppb; mid = (l + r) / 2;
-		while (r - l > err) {
-			int cnt = 0;
-			for (int i = 0; i < mapHeight; i++) 
-				for (int j = 0; j < mapWidth; j++) 
-					if (heightMap[i][j] > mid)
-						cnt++;
-			
-			if ((double)cnt / landArea < mountainRatio)
-				r = mid;
-			else
-				l = mid;
-			mid = (l + r) / 2;
-		}
-		double mountainLevel = mid;
+		double mountainLevel = levelAbove(heights, landStart, (int)Math.round(mountainRatio * landArea));
 
 		// Finally, create Tiles
 		for (int i = 0; i < mapHeight; i++) {
@@ -281,40 +271,19 @@ abstract class MapGenerator {
 		int landArea = 0;
 		final double forestRatio = 0.4;
 
-		SimplexNoise.seed(seed);
-		double[][] moistureMap = new double[mapHeight][mapWidth];
-		double lowb = 9999999, uppb = -9999990;
-		for (int i = 0; i < mapHeight; i++) {
-			for (int j = 0; j < mapWidth; j++) {
+		double[][] moistureMap = new SimplexNoise(seed).fill(mapHeight, mapWidth, 3);
+		double[] moistures = new double[mapHeight * mapWidth];
+		for (int i = 0; i < mapHeight; i++)
+			for (int j = 0; j < mapWidth; j++)
 				if(grid[i][j].getTerrainType() == Tile.TerrainType.FIELD)
-					landArea++;
-				double value = SimplexNoise.noise((double)i/3, (double)j/3);
-				moistureMap[i][j] = value;
-				lowb = Double.min(lowb, value);
-				uppb = Double.max(uppb, value);
-			}
-		}
+					moistures[landArea++] = moistureMap[i][j];
+		moistures = Arrays.copyOf(moistures, landArea);
+		Arrays.sort(moistures);
 
-		double l ,r ,mid;
-		final double err = 0.01;
-		
 		// Pick a moisture, so that forestRatio is satisfied
-		l = lowb; r = uppb; mid = (l + r) / 2;
-		while (r - l > err) {
-			int cnt = 0;
-			for (int i = 0; i < mapHeight; i++) 
-				for (int j = 0; j < mapWidth; j++) 
-					if (moistureMap[i][j] > mid && grid[i][j].getTerrainType() == Tile.TerrainType.FIELD)
-						cnt++;
-			if ((double)cnt / landArea < forestRatio)
-				r = mid;
-			else
-				l = mid;
-			mid = (l + r) / 2;
-		}
+		double forestLevel = levelAbove(moistures, 0, (int)Math.round(forestRatio * landArea));
 
 		// Finally, convert FIELD to FOREST
-		double forestLevel = mid;
 		for (int i = 0; i < mapHeight; i++) 
 			for (int j = 0; j < mapWidth; j++) 
 				if (moistureMap[i][j] > forestLevel && grid[i][j].getTerrainType() == Tile.TerrainType.FIELD)
@@ -322,6 +291,18 @@ abstract class MapGenerator {
 
 	}
 
+	/* A level with COUNT of the SORTED values below it, ties aside. */
+	private static double levelBelow(double[] sorted, int count) {
+		return count < sorted.length ? sorted[count] : Double.POSITIVE_INFINITY;
+	}
+
+	/* A level with COUNT of the SORTED values from index FROM on above it, ties aside. */
+	private static double levelAbove(double[] sorted, int from, int count) {
+		if (from >= sorted.length)
+			return Double.POSITIVE_INFINITY;
+		return sorted[Integer.max(from, sorted.length - 1 - count)];
+	}
+
 	private static ArrayList<Tile> generateVillages(Tile[][] grid, int seed) {
 
 		ArrayList<Tile> villages = new ArrayList<Tile>();
@@ -591,12 +572,8 @@ abstract class MapGenerator {
 			players[i].addCity(capital);
 
 			// Add adjacent 5x5 tiles into vision
-			for (int x = centers[i].getX()-2; x <= centers[i].getX()+2; x++) {
-				for (int y = centers[i].getY()-2; y <= centers[i].getY()+2; y++) {
-					if (TileMap.isValid(grid, x, y))
-						players[i].addVision(grid[x][y]);
-				}
-			}
+			players[i].initVision(grid);
+			players[i].getVision().reveal(centers[i].getX(), centers[i].getY(), 2);
 
 			// Spawn the initial unit
 			Unit unit = null;
@@ -0,0 +1,242 @@
+package polytopia.gameplay;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.SplittableRandom;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import polytopia.gameplay.Player.Faction;
+
+/** Self-play tournament runner.
+	Plays N seeded headless games, each on its own GameState, on a thread pool,
+	and reports per-faction win rates, turn timings and the game length distribution.
+	With mctsMillis > 0, the first player of every game is an MCTSBot with that
+	per-turn budget, searching on mctsThreads threads, and its win rate is reported
+	next to the win rate of the first seat, so that a run without it on the same
+	seeds shows how the AI does in its place.
+	Usage: java polytopia.gameplay.Tournament [games] [threads] [mapSize] [maxTurns] [baseSeed] [mctsMillis] [mctsThreads] */
+public class Tournament {
+
+	/* Map types that are cycled through; RANDOM would just pick one of these. */
+	private static final MapGenerator.MapType[] MAP_TYPES = {
+		MapGenerator.MapType.DRYLAND, MapGenerator.MapType.LAKES,
+		MapGenerator.MapType.CONTINENTS, MapGenerator.MapType.ARCHIPELAGO,
+	};
+	/* Same as a game launched from the GameWindow: 3 out of 4 factions. */
+	private static final int PLAYERS_PER_GAME = 3;
+	/* Bucket width (in turns) of the game length histogram. */
+	private static final int LENGTH_BUCKET = 10;
+
+	/* Outcome of one game. */
+	public static class Result {
+		public final long seed;
+		public final MapGenerator.MapType mapType;
+		public final Faction[] factions;
+		/* null if the game is a draw. */
+		public final Faction winner;
+		/* Faction played by the MCTSBot, null if there is none. */
+		public final Faction mcts;
+		public final boolean finished;
+		public final int turns;
+		public final long nanos;
+
+		Result(long seed, MapGenerator.MapType mapType, Faction[] factions,
+				Faction winner, Faction mcts, boolean finished, int turns, long nanos) {
+			this.seed = seed;
+			this.mapType = mapType;
+			this.factions = factions;
+			this.winner = winner;
+			this.mcts = mcts;
+			this.finished = finished;
+			this.turns = turns;
+			this.nanos = nanos;
+		}
+	}
+
+	private final int mapSize;
+	private final int maxTurns;
+	private final long mctsMillis;
+	private final int mctsThreads;
+
+	public Tournament(int mapSize, int maxTurns) {
+		this(mapSize, maxTurns, 0, 1);
+	}
+
+	/* If MCTSMILLIS > 0, the first player of every game is an MCTSBot on MCTSTHREADS threads. */
+	public Tournament(int mapSize, int maxTurns, long mctsMillis, int mctsThreads) {
+		this.mapSize = mapSize;
+		this.maxTurns = maxTurns;
+		this.mctsMillis = mctsMillis;
+		this.mctsThreads = mctsThreads;
+	}
+
+	/* Play a single game. Factions, seats and map type are derived from SEED alone,
+	   so every game of a tournament can be replayed in isolation.
+	   SplittableRandom scrambles SEED first: java.util.Random would give adjacent
+	   seeds nearly the same lineup. */
+	public Result play(long seed) {
+		SplittableRandom rnd = new SplittableRandom(seed);
+		Faction[] draw = Faction.values();
+		for (int i = draw.length - 1; i > 0; i--) {
+			int j = rnd.nextInt(i + 1);
+			Faction faction = draw[i];
+			draw[i] = draw[j];
+			draw[j] = faction;
+		}
+
+		Faction[] factions = new Faction[PLAYERS_PER_GAME];
+		String[] factionNames = new String[PLAYERS_PER_GAME];
+		for (int i = 0; i < PLAYERS_PER_GAME; i++) {
+			factions[i] = draw[i];
+			factionNames[i] = factions[i].toString();
+		}
+		MapGenerator.MapType mapType = MAP_TYPES[rnd.nextInt(MAP_TYPES.length)];
+
+		long start = System.nanoTime();
+		GameState state = new GameState(mapSize, rnd.nextInt(), mapType.toString(), factionNames, true);
+		MCTSBot bot = null;
+		if (mctsMillis > 0) {
+			bot = new MCTSBot(mctsMillis, mctsThreads, seed);
+			state.getPlayers()[0].setMCTSBot(bot);
+		}
+		try {
+			state.simulate(maxTurns);
+		} finally {
+			if (bot != null)
+				bot.shutdown();
+		}
+		long nanos = System.nanoTime() - start;
+
+		boolean finished = state.isOver();
+		int turns = Math.min(state.getTurn(), maxTurns);
+		return new Result(seed, mapType, factions, getWinner(state), 
+							bot == null ? null : factions[0], finished, turns, nanos);
+	}
+
+	/* The last player owning cities wins. If the turn limit is hit first,
+	   the player with the most cities wins, and a tie is a draw. */
+	private static Faction getWinner(GameState state) {
+		Player best = null;
+		boolean tie = false;
+		for (Player player : state.getPlayers()) {
+			int cities = player.getCities().size();
+			if (best == null || cities > best.getCities().size()) {
+				best = player;
+				tie = false;
+			}
+			else if (cities == best.getCities().size())
+				tie = true;
+		}
+		return (tie || best.getCities().isEmpty()) ? null : best.getFaction();
+	}
+
+	/* Play GAMES games with seeds BASESEED, BASESEED+1, ... on THREADS worker threads.
+	   Results are returned in completion order. */
+	public ArrayList<Result> run(int games, int threads, long baseSeed)
+			throws InterruptedException, ExecutionException {
+
+		ExecutorService pool = Executors.newFixedThreadPool(threads, r -> {
+			Thread t = new Thread(r, "tournament-worker");
+			t.setDaemon(true);
+			return t;
+		});
+		ExecutorCompletionService<Result> completion = new ExecutorCompletionService<>(pool);
+		try {
+			for (int i = 0; i < games; i++) {
+				long seed = baseSeed + i;
+				completion.submit(() -> play(seed));
+			}
+
+			ArrayList<Result> results = new ArrayList<>(games);
+			for (int i = 0; i < games; i++) {
+				results.add(completion.take().get());
+				if (results.size() % Math.max(1, games / 10) == 0)
+					System.err.printf ("%d/%d games done\n", results.size(), games);
+			}
+			return results;
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+
+	/* Print aggregate statistics of RESULTS, played in ELAPSEDNANOS wall time. */
+	public static void report(ArrayList<Result> results, long elapsedNanos) {
+		EnumMap<Faction, Integer> played = new EnumMap<>(Faction.class);
+		EnumMap<Faction, Integer> won = new EnumMap<>(Faction.class);
+		for (Faction faction : Faction.values()) {
+			played.put(faction, 0);
+			won.put(faction, 0);
+		}
+
+		TreeMap<Integer, Integer> lengths = new TreeMap<>();
+		long totalTurns = 0, totalNanos = 0;
+		int finished = 0, draws = 0, firstWon = 0, mctsPlayed = 0, mctsWon = 0;
+		for (Result result : results) {
+			if (result.winner != null && result.winner == result.factions[0])
+				firstWon++;
+			if (result.mcts != null) {
+				mctsPlayed++;
+				if (result.mcts == result.winner)
+					mctsWon++;
+			}
+			for (Faction faction : result.factions)
+				played.merge(faction, 1, Integer::sum);
+			if (result.winner != null)
+				won.merge(result.winner, 1, Integer::sum);
+			else
+				draws++;
+			if (result.finished)
+				finished++;
+
+			totalTurns += result.turns;
+			totalNanos += result.nanos;
+			lengths.merge(result.turns / LENGTH_BUCKET * LENGTH_BUCKET, 1, Integer::sum);
+		}
+
+		int games = results.size();
+		System.out.printf ("Games: %d (%d finished, %d draws)\n", games, finished, draws);
+		System.out.printf ("Games/sec: %.3f\n", games / (elapsedNanos / 1e9));
+		System.out.printf ("Avg turn length: %.2f ms\n", totalTurns == 0 ? 0 : totalNanos / 1e6 / totalTurns);
+		System.out.printf ("Avg game length: %.1f turns\n", games == 0 ? 0 : (double) totalTurns / games);
+
+		System.out.println ("Win rate per faction:");
+		for (Faction faction : Faction.values()) {
+			int p = played.get(faction), w = won.get(faction);
+			System.out.printf ("\t%-10s %5.1f%% (%d/%d)\n", faction.toString(),
+								p == 0 ? 0 : 100.0 * w / p, w, p);
+		}
+
+		System.out.printf ("First seat win rate: %.1f%% (%d/%d)\n", games == 0 ? 0 : 100.0 * firstWon / games, firstWon, games);
+		if (mctsPlayed > 0)
+			System.out.printf ("MCTS win rate: %.1f%% (%d/%d)\n", 100.0 * mctsWon / mctsPlayed, mctsWon, mctsPlayed);
+
+		System.out.println ("Game length distribution:");
+		for (var entry : lengths.entrySet()) {
+			int from = entry.getKey();
+			System.out.printf ("\t%3d-%-3d %4d ", from, from + LENGTH_BUCKET - 1, entry.getValue());
+			for (int i = 0; i < entry.getValue() * 40 / games; i++)
+				System.out.printf ("#");
+			System.out.println();
+		}
+	}
+
+	public static void main(String[] args) throws Exception {
+		int games = args.length > 0 ? Integer.parseInt(args[0]) : 32;
+		int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+		int mapSize = args.length > 2 ? Integer.parseInt(args[2]) : 18;
+		int maxTurns = args.length > 3 ? Integer.parseInt(args[3]) : 100;
+		long baseSeed = args.length > 4 ? Long.parseLong(args[4]) : 0;
+		long mctsMillis = args.length > 5 ? Long.parseLong(args[5]) : 0;
+		int mctsThreads = args.length > 6 ? Integer.parseInt(args[6]) : 1;
+
+		System.out.printf ("Tournament: %d games on %d threads, %dx%d maps, at most %d turns\n",
+							games, threads, mapSize, mapSize, maxTurns);
+		long start = System.nanoTime();
+		ArrayList<Result> results = new Tournament(mapSize, maxTurns, mctsMillis, mctsThreads).run(games, threads, baseSeed);
+		report(results, System.nanoTime() - start);
+	}
+}
@@ -8,8 +8,8 @@ import polytopia.gameplay.Player.Tech;
 
 import java.lang.reflect.Array;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Iterator;
-import java.util.LinkedList;
 
 public class Unit implements Visualizable, Movable {
 
@@ -89,7 +89,7 @@ public class Unit implements Visualizable, Movable {
 		this.setMotion(t);
 
 		
-        int size = Game.map.getSize();
+        int size = Game.getMap().getSize();
 		Action[][] actionMap = new Action[size][size];
 		ArrayList<Action> actions = this.getActions();
 		ArrayList<Action> visibleActions = new ArrayList<Action>();
@@ -131,6 +131,29 @@ public class Unit implements Visualizable, Movable {
 		player.getUnits().add(this);
 	}
 
+	/* Copy of OTHER, owned by PLAYER, for GameState::copy(). Unlike a new unit,
+	   it is not added to PLAYER's units; position, city and cargo are set by the caller. */
+	Unit(Unit other, Player player) {
+		this.type = other.type;
+		this.health = other.health;
+		this.skills = other.skills.clone();
+		this.ownerPlayer = player;
+		this.movable = other.movable;
+		this.attackable = other.attackable;
+		this.kills = other.kills;
+		this.veteran = other.veteran;
+		this.flipped = other.flipped;
+	}
+
+	/* A loaded unit, owned by PLAYER, for SaveGame::read(). Like a copy, it is not
+	   added to PLAYER's units; everything but its type and skills is set by the caller. */
+	Unit(UnitType type, Skill[] skills, Player player) {
+		this.type = type;
+		this.health = type.maxHealth;
+		this.skills = skills;
+		this.ownerPlayer = player;
+	}
+
 	public Player getOwnerPlayer() {return this.ownerPlayer;}
 	public void setOwnerPlayer(Player player) {this.ownerPlayer = player;}
 	public City getOwnerCity() {return this.ownerCity;}
@@ -198,91 +221,91 @@ public class Unit implements Visualizable, Movable {
 		return this.type.range;
 	}
 
+	/* Tiles this unit can move to, including its own position.
+	   Tiles are searched by most remaining movement first, using the buckets in
+	   MovementSearch. Since entering a tile costs the same from every neighbour,
+	   a tile is first reached with its best remaining movement, and is expanded once. */
 	public ArrayList<Tile> getMovableTiles() {
 		ArrayList<Tile> destination = new ArrayList<>();
 
-		class State {
-			public Tile tile;
-			public int move;
-			public State(Tile tile, int move) {
-				this.tile = tile;
-				this.move = move;
-			}
-		}
-
-		int [] dx = new int[]{0, 1, 0, -1, -1, -1, 1, 1};
-		int [] dy = new int[]{-1, 0, 1, 0, -1, 1, -1, 1};
-
-		LinkedList<State> q = new LinkedList<State>();
-		q.add(new State(this.position, this.getMovement()));
-		Tile[][] grid = Game.map.getGrid();
-		while(!q.isEmpty()) {
-			State state = q.remove();
-			Tile tile = state.tile;
-			int move = state.move;
-
-			if (!destination.contains(tile))
-				destination.add(tile);
-
-			// out of moves
-			if (move <= 0)
-				continue;
-			
-
-			for(int i = 0; i < 8; i++) {
-				int x = tile.getX() + dx[i];
-				int y = tile.getY() + dy[i];
-				if(!TileMap.isValid(grid, x, y))
-					continue;
-				if(grid[x][y].getUnit() != null)
-					continue;
-				
-				// in enemy control zone
-				boolean inControl = false;
-				for(int j = 0; j < 8; j++) {
-					int xx = x + dx[j];
-					int yy = y + dy[j];
-					if (TileMap.isValid(grid, xx, yy) && grid[xx][yy].hasEnemy(ownerPlayer))
-						inControl = true;
-					break;
-				}
-
-				// Need CLIMBING to go on mountains
-				if (grid[x][y].getTerrainType() == Tile.TerrainType.MOUNTAIN 
-					&& !ownerPlayer.getTechs().contains(Tech.CLIMBING))
-					continue;
-				// Need NAVIGATION to go on oceans
-				if (grid[x][y].getTerrainType() == Tile.TerrainType.OCEAN 
-					&& !ownerPlayer.getTechs().contains(Tech.NAVIGATION))
-					continue;
-				
-				if (!this.isNavy()) {
-					// Land unit
-					if (grid[x][y].getTerrainType() == Tile.TerrainType.SHORE
-						|| grid[x][y].getTerrainType() == Tile.TerrainType.OCEAN)
-						// cannot move on SHORE/OCEAN, unless with friendly PORT on
-						if (!(grid[x][y].getVariation() instanceof Improvement)
-							|| ((Improvement)(grid[x][y].getVariation())).getImprovementType() != Improvement.ImprovementType.PORT
-							|| grid[x][y].getOwnerCity().getOwnerPlayer() != ownerPlayer)
-								continue;
+		int [] dx = MovementSearch.dx;
+		int [] dy = MovementSearch.dy;
+
+		Tile[][] grid = ownerPlayer.getGameState().getMap().getGrid();
+		MovementSearch search = ownerPlayer.getGameState().getMap().getMovementSearch();
+		ZoneOfControl zoneOfControl = ownerPlayer.getGameState().getZoneOfControl();
+		int size = grid.length;
+		int movement = this.getMovement();
+
+		// The GameWindow may query a unit while a bot is playing
+		synchronized (search) {
+			search.begin(movement);
+			search.reach(position.getX() * size + position.getY(), movement);
+			destination.add(position);
+
+			boolean climbing = ownerPlayer.getTechs().contains(Tech.CLIMBING);
+			boolean navigation = ownerPlayer.getTechs().contains(Tech.NAVIGATION);
+
+			for (int move = movement; move > 0; move--) {
+				for (int k = 0; k < search.count(move); k++) {
+					int index = search.get(move, k);
+					// stale entry, reached again with more movement
+					if (search.getBest(index) != move)
+						continue;
+					Tile tile = grid[index / size][index % size];
+
+					for(int i = 0; i < 8; i++) {
+						int x = tile.getX() + dx[i];
+						int y = tile.getY() + dy[i];
+						if(!TileMap.isValid(grid, x, y))
+							continue;
+						if(grid[x][y].getUnit() != null)
+							continue;
 					
-					switch (grid[x][y].getTerrainType()) {
-						case FIELD: q.add(new State(grid[x][y], inControl ? 0 : move-1)); break;
-						case FOREST: q.add(new State(grid[x][y], inControl ? 0 : move-2)); break;
-						case MOUNTAIN: q.add(new State(grid[x][y], inControl ? 0 : move-2)); break;
-						case SHORE: q.add(new State(grid[x][y], 0)); break;
-						case OCEAN: q.add(new State(grid[x][y], 0)); break;
-					}
-				}
-				else {
-					// Navy unit
-					switch (grid[x][y].getTerrainType()) {
-						case SHORE: q.add(new State(grid[x][y], inControl ? 0 : move-1)); break;
-						case OCEAN: q.add(new State(grid[x][y], inControl ? 0 : move-1)); break;
-						default: q.add(new State(grid[x][y], 0));
+						// in enemy control zone
+						boolean inControl = zoneOfControl.isControlled(ownerPlayer, x, y);
+
+						Tile.TerrainType terrain = grid[x][y].getTerrainType();
+						// Need CLIMBING to go on mountains
+						if (terrain == Tile.TerrainType.MOUNTAIN && !climbing)
+							continue;
+						// Need NAVIGATION to go on oceans
+						if (terrain == Tile.TerrainType.OCEAN && !navigation)
+							continue;
+					
+						int next;
+						if (!this.isNavy()) {
+							// Land unit
+							if (terrain == Tile.TerrainType.SHORE
+								|| terrain == Tile.TerrainType.OCEAN)
+								// cannot move on SHORE/OCEAN, unless with friendly PORT on
+								if (!(grid[x][y].getVariation() instanceof Improvement)
+									|| ((Improvement)(grid[x][y].getVariation())).getImprovementType() != Improvement.ImprovementType.PORT
+									|| grid[x][y].getOwnerCity().getOwnerPlayer() != ownerPlayer)
+										continue;
+						
+							switch (terrain) {
+								case FIELD: next = inControl ? 0 : move-1; break;
+								case FOREST: next = inControl ? 0 : move-2; break;
+								case MOUNTAIN: next = inControl ? 0 : move-2; break;
+								default: next = 0;
+							}
+						}
+						else {
+							// Navy unit
+							switch (terrain) {
+								case SHORE: next = inControl ? 0 : move-1; break;
+								case OCEAN: next = inControl ? 0 : move-1; break;
+								default: next = 0;
+							}
+						}
+
+						int nextIndex = x * size + y;
+						if (!search.isReached(nextIndex))
+							destination.add(grid[x][y]);
+						search.reach(nextIndex, next);
 					}
 				}
-
 			}
 		}
 		return destination;
@@ -290,7 +313,7 @@ public class Unit implements Visualizable, Movable {
 
 	public ArrayList<Tile> searchEnemy() {
 		ArrayList<Tile> accessibleEnemy = new ArrayList<>();
-		for(Tile tile: TileMap.getSurroundings(Game.map.getGrid(), position.getX(), position.getY(), getRange()))
+		for(Tile tile: TileMap.getSurroundings(ownerPlayer.getGameState().getMap().getGrid(), position.getX(), position.getY(), getRange()))
 			if (tile.hasEnemy(ownerPlayer))
 				accessibleEnemy.add(tile);
 			
@@ -327,8 +350,15 @@ public class Unit implements Visualizable, Movable {
 		return rate;
 	}
 
+	/* Legal actions of this unit, cached until something nearby changes; see ActionCache.
+	   The returned list is shared, so do not modify it. */
 	public ArrayList<Action> getActions() {
-		ArrayList<Action> legalActions = new ArrayList<>();
+		ActionCache cache = ownerPlayer.getGameState().getActionCache();
+		ArrayList<Action> legalActions = cache.get(this);
+		if (legalActions != null)
+			return legalActions;
+
+		legalActions = new ArrayList<>();
 
 		legalActions.add(new ActionCaptureValuableTile(this));
 
@@ -369,6 +399,7 @@ public class Unit implements Visualizable, Movable {
 				legalActions.add(new ActionUnitMove(this, tile));
 		}
 
+		cache.put(this, legalActions);
 		return legalActions;
 	}
 
@@ -401,4 +432,66 @@ public class Unit implements Visualizable, Movable {
 		return String.join("-", type.toString(), ownerPlayer.getFaction().toString());
 	}
 
-}
\ No newline at end of file
+}
+
+
+/** Scratch buffers for Unit::getMovableTiles(), one per TileMap.
+	Tiles are indexed by x*size+y, and the search of each unit starts a new
+	epoch instead of clearing the arrays, so a search allocates nothing. */
+class MovementSearch {
+
+	static final int [] dx = new int[]{0, 1, 0, -1, -1, -1, 1, 1};
+	static final int [] dy = new int[]{-1, 0, 1, 0, -1, 1, -1, 1};
+
+	/* Best remaining movement of each tile, valid if reached in this epoch. */
+	private int[] best;
+	private int[] epochs;
+	private int epoch = 0;
+
+	/* buckets[m] holds the tiles reached with m movement left, to be expanded. */
+	private int[][] buckets = new int[0][];
+	private int[] counts = new int[0];
+
+	MovementSearch(int size) {
+		this.best = new int[size * size];
+		this.epochs = new int[size * size];
+	}
+
+	/* Start searching for a unit with MOVEMENT. */
+	void begin(int movement) {
+		if (++epoch == 0) {
+			Arrays.fill(epochs, 0);
+			epoch = 1;
+		}
+		if (buckets.length <= movement) {
+			buckets = Arrays.copyOf(buckets, movement + 1);
+			counts = new int[movement + 1];
+		}
+		for (int m = 1; m <= movement; m++) {
+			if (buckets[m] == null)
+				buckets[m] = new int[16];
+			counts[m] = 0;
+		}
+	}
+
+	boolean isReached(int index) {return epochs[index] == epoch;}
+	int getBest(int index) {return best[index];}
+	int count(int move) {return counts[move];}
+	int get(int move, int k) {return buckets[move][k];}
+
+	/* Reach tile INDEX with MOVE left. Queues it for expansion if MOVE is
+	   positive and better than before. */
+	void reach(int index, int move) {
+		if (move < 0)
+			move = 0;
+		if (epochs[index] == epoch && best[index] >= move)
+			return;
+		epochs[index] = epoch;
+		best[index] = move;
+		if (move == 0)
+			return;
+		if (counts[move] == buckets[move].length)
+			buckets[move] = Arrays.copyOf(buckets[move], 2 * counts[move]);
+		buckets[move][counts[move]++] = index;
+	}
+}
@@ -0,0 +1,109 @@
+package polytopia.gameplay;
+
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/** The tiles a player has discovered, i.e. the complement of its fog of war.
+	Backed by a dense bitmap indexed by x*size+y, so that contains() is a bit
+	test instead of a hash lookup. It is still a Set<Tile>, so it can be
+	iterated and queried like the HashSet it replaces; tiles cannot be removed. */
+public class Vision extends AbstractSet<Tile> {
+
+	private Tile[][] grid;
+	private int size;
+	private BitSet revealed;
+
+	public Vision(Tile[][] grid) {
+		this.grid = grid;
+		this.size = grid.length;
+		this.revealed = new BitSet(size * size);
+	}
+
+	/* Copy of OTHER, over the copied GRID. */
+	Vision(Vision other, Tile[][] grid) {
+		this.grid = grid;
+		this.size = grid.length;
+		this.revealed = (BitSet) other.revealed.clone();
+	}
+
+	/* Vision over GRID, with the tiles of WORDS (see toLongArray()) revealed. */
+	Vision(Tile[][] grid, long[] words) {
+		this.grid = grid;
+		this.size = grid.length;
+		this.revealed = BitSet.valueOf(words);
+	}
+
+	/* The bitmap, as packed by BitSet::toLongArray(). */
+	long[] toLongArray() {
+		return revealed.toLongArray();
+	}
+
+	public boolean isRevealed(int x, int y) {
+		return revealed.get(x * size + y);
+	}
+
+	@Override
+	public boolean contains(Object o) {
+		if (!(o instanceof Tile))
+			return false;
+		Tile tile = (Tile) o;
+		return TileMap.isValid(grid, tile.getX(), tile.getY()) && isRevealed(tile.getX(), tile.getY());
+	}
+
+	/* Returns whether TILE was newly revealed. */
+	@Override
+	public boolean add(Tile tile) {
+		int index = tile.getX() * size + tile.getY();
+		if (revealed.get(index))
+			return false;
+		revealed.set(index);
+		return true;
+	}
+
+	/* Reveal the square of radius R around (X, Y), clipped to the map. */
+	public void reveal(int x, int y, int r) {
+		int fromY = Integer.max(0, y - r), toY = Integer.min(size - 1, y + r);
+		for (int i = Integer.max(0, x - r); i <= Integer.min(size - 1, x + r); i++)
+			revealed.set(i * size + fromY, i * size + toY + 1);
+	}
+
+	/* Tiles in the square of radius R around (X, Y) that are not revealed yet.
+	   Same tiles and order as filtering TileMap::getSurroundings() by contains(). */
+	public ArrayList<Tile> getHidden(int x, int y, int r) {
+		ArrayList<Tile> hidden = new ArrayList<>();
+		int fromY = Integer.max(0, y - r), toY = Integer.min(size - 1, y + r);
+		for (int i = Integer.max(0, x - r); i <= Integer.min(size - 1, x + r); i++) {
+			int base = i * size;
+			for (int j = revealed.nextClearBit(base + fromY); j <= base + toY; j = revealed.nextClearBit(j + 1))
+				hidden.add(grid[i][j - base]);
+		}
+		return hidden;
+	}
+
+	/* Number of revealed tiles. */
+	@Override
+	public int size() {
+		return revealed.cardinality();
+	}
+
+	/* Iterates revealed tiles in row-major order. */
+	@Override
+	public Iterator<Tile> iterator() {
+		return new Iterator<Tile>() {
+			private int next = revealed.nextSetBit(0);
+
+			public boolean hasNext() {return next >= 0;}
+
+			public Tile next() {
+				if (next < 0)
+					throw new NoSuchElementException();
+				Tile tile = grid[next / size][next % size];
+				next = revealed.nextSetBit(next + 1);
+				return tile;
+			}
+		};
+	}
+}
@@ -0,0 +1,62 @@
+package polytopia.gameplay;
+
+/** Enemy zones of control of a game, for every player.
+	A tile is in enemy control for a player if any of its 8 neighbours holds
+	a unit of another player; units entering it lose the rest of their movement.
+	For each player, it counts the adjacent enemy units of every tile, indexed
+	by x*size+y, so that queries are O(1). The counts are built once from the map,
+	then kept up to date by the Consequences that place, remove or convert units:
+	ConseqUnitMove, ConseqUnitSpawn, ConseqUnitDeath and ConseqUnitConvert. */
+public class ZoneOfControl {
+
+	private static final int [] dx = new int[]{0, 1, 0, -1, -1, -1, 1, 1};
+	private static final int [] dy = new int[]{-1, 0, 1, 0, -1, 1, -1, 1};
+
+	private int size;
+	/* enemies[p][x*size+y]: units adjacent to (x, y) that do not belong to player p. */
+	private byte[][] enemies;
+
+	public ZoneOfControl(Tile[][] grid, Player[] players) {
+		this.size = grid.length;
+		this.enemies = new byte[players.length][size * size];
+		for (Tile[] row : grid)
+			for (Tile tile : row)
+				if (tile.getUnit() != null)
+					addUnit(tile.getUnit().getOwnerPlayer(), tile.getX(), tile.getY());
+	}
+
+	/* Copy of OTHER, for GameState::copy(). */
+	ZoneOfControl(ZoneOfControl other) {
+		this.size = other.size;
+		this.enemies = new byte[other.enemies.length][];
+		for (int p = 0; p < enemies.length; p++)
+			this.enemies[p] = other.enemies[p].clone();
+	}
+
+	public boolean isControlled(Player player, int x, int y) {
+		return enemies[player.getPlayerId()][x * size + y] != 0;
+	}
+
+	/* A unit of OWNER now stands on (X, Y). */
+	public void addUnit(Player owner, int x, int y) {
+		update(owner, x, y, 1);
+	}
+
+	/* A unit of OWNER left (X, Y). */
+	public void removeUnit(Player owner, int x, int y) {
+		update(owner, x, y, -1);
+	}
+
+	private void update(Player owner, int x, int y, int delta) {
+		for (int i = 0; i < 8; i++) {
+			int xx = x + dx[i];
+			int yy = y + dy[i];
+			if (xx < 0 || yy < 0 || xx >= size || yy >= size)
+				continue;
+			int index = xx * size + yy;
+			for (int p = 0; p < enemies.length; p++)
+				if (p != owner.getPlayerId())
+					enemies[p][index] += delta;
+		}
+	}
+}
@@ -0,0 +1,59 @@
+package polytopia.graphics;
+
+import java.awt.*;
+import java.awt.geom.*;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+
+import polytopia.gameplay.*;
+import polytopia.graphics.Render.BoundaryLine;
+
+/** Territory boundaries as seen by the human player, built into one Path2D of the
+    world per Player or City, so that a frame draws each with a single call. A path
+    is built from the territory the first time it is drawn, and again once tiles may
+    have changed owner or been revealed: Consequences call Render::touchTerrain() once
+    applied, which drops every path. */
+class Boundaries {
+
+    /* By Player or City, by identity. */
+    private IdentityHashMap<Object, Path2D> paths = new IdentityHashMap<>();
+    /* The map the paths are built for. */
+    private Tile[][] grid;
+
+    private volatile boolean touched = false;
+
+    /* Territories or vision may have changed. Can be called from any thread. */
+    void touch() {
+        touched = true;
+    }
+
+    void draw(Graphics2D g2d, Player player, Color color, float strokeWidth) {
+        drawPath(g2d, player, color, strokeWidth);
+    }
+
+    void draw(Graphics2D g2d, City city, Color color, float strokeWidth) {
+        drawPath(g2d, city, color, strokeWidth);
+    }
+
+    private void drawPath(Graphics2D g2d, Object owner, Color color, float strokeWidth) {
+        Tile[][] grid = Game.getMap().getGrid();
+        if (grid != this.grid || touched) {
+            touched = false;
+            this.grid = grid;
+            paths.clear();
+        }
+        Path2D path = paths.get(owner);
+        if (path == null) {
+            ArrayList<BoundaryLine> lines = owner instanceof City
+                ? ((City) owner).getBoundary(Game.getHumanPlayer())
+                : ((Player) owner).getBoundary(Game.getHumanPlayer());
+            path = new Path2D.Float(Path2D.WIND_NON_ZERO, 2 * lines.size());
+            for (BoundaryLine line : lines)
+                line.appendTo(path);
+            paths.put(owner, path);
+        }
+        g2d.setStroke(new BasicStroke(strokeWidth));
+        g2d.setColor(color);
+        g2d.draw(path);
+    }
+}
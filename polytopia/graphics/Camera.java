@@ -10,8 +10,11 @@ public class Camera {
     private double cameraScale = 0; 
     private int cameraZoom = -10;
     
-    private final int cameraMinZoom = -80;
-    private final int cameraMaxZoom = 80;
+    private static final int cameraMinZoom = -80;
+    private static final int cameraMaxZoom = 80;
+    private static final int cameraZoomStep = 10;
+    /* Number of distinct scales changeScale() can produce. */
+    static final int cameraZoomLevels = (cameraMaxZoom - cameraMinZoom) / cameraZoomStep + 1;
     private final double cameraMinScale = 0.2;
     private final double cameraMaxScale = 0.5;
     private static final long focusCycle = 500;
@@ -45,6 +48,7 @@ public class Camera {
     private void setCamera(){
         trans.setToTranslation(cameraX, cameraY);
         trans.scale(cameraScale, cameraScale);
+        Render.requestFrame();
     }
 
     public void setCamera(int posX, int posY){
@@ -53,6 +57,10 @@ public class Camera {
         setCamera();
     }
 
+    public AffineTransform getTransform() {
+        return new AffineTransform(trans);
+    }
+
     public void setCamera(double scale){
         cameraScale = scale;
         setCamera();
@@ -77,7 +85,7 @@ public class Camera {
     }
 
     public void changeScale (int detaZoom) {
-        cameraZoom -= detaZoom * 10;
+        cameraZoom -= detaZoom * cameraZoomStep;
         if (cameraZoom < cameraMinZoom)
             cameraZoom = cameraMinZoom;
         if (cameraZoom > cameraMaxZoom)
@@ -110,6 +118,12 @@ public class Camera {
             (int)((destinationY - cameraY) * ((double)lastTime / focusCycle)) + cameraY);
         }
     }
+
+    /* Whether updateCamera() is still moving towards a focus. */
+    public boolean isMoving() {
+        return System.currentTimeMillis() - startTime < focusCycle;
+    }
+
     public Point2D inverseTransPoint(Point2D point) {
         try{
             Point2D tmp = trans.inverseTransform(point, null);
@@ -122,6 +136,28 @@ public class Camera {
         }
     }
 
+    /* The world (texture pixels) rectangle shown in SCREEN, null if it can't be found. */
+    public Rectangle2D inverseTransRect(Rectangle2D screen) {
+        try{
+            return trans.createInverse().createTransformedShape(screen).getBounds2D();
+        }
+        catch(Exception e){
+            System.out.println(e + "can't be inversed");
+            return null;
+        }
+    }
+
+    /* The map coordinates of a world POINT, as opposed to a point on screen. */
+    public Point2D inverseTransWorldPoint(Point2D point) {
+        try{
+            return pointTrans.inverseTransform(point, null);
+        }
+        catch(Exception e){
+            System.out.println(e + "can't be inversed");
+            return null;
+        }
+    }
+
     public void setMousePos(int x, int y) {
         
     }
@@ -3,6 +3,7 @@ package polytopia.graphics;
 import java.awt.geom.*;
 import java.awt.*;
 import java.awt.image.*;
+import java.util.concurrent.CompletableFuture;
 
 import polytopia.gameplay.Tile;
 
@@ -54,10 +55,17 @@ public class Motion {
     }
     
 
-    synchronized public boolean update(double currentTime){
+    /* Completes on the render thread once the Motion is over, or removed. */
+    private final CompletableFuture<Void> completion = new CompletableFuture<>();
+
+    public CompletableFuture<Void> getCompletion() {
+        return completion;
+    }
+
+    public boolean update(double currentTime){
         lastTime = currentTime - startTime;
         if (currentTime > deadline){
-            this.notify();
+            completion.complete(null);
             return true;
         }
         return false;
@@ -183,29 +191,17 @@ class TextureMotion extends Motion{
         switch(name){
             case "FOG": ac2 = AlphaComposite.getInstance(AlphaComposite.SRC_OVER, 1.0f - (float)(lastTime / (deadline - startTime)));
                 g2d.setComposite(ac2);
-                tmp =  AffineTransform.getTranslateInstance(
-                offset.getX() + pointDeparture.getX() - 0.2f * texture.getWidth() / 2, offset.getY() 
-                + pointDeparture.getY() - fogOffset - Render.detaHeight - Render.tileHeight * 1.5f);
-                tmp.scale(0.2f, 0.2f);
-                g2d.drawRenderedImage(texture, tmp);
+                Texture.draw(g2d, texture, offset.getX() + pointDeparture.getX() - 0.2f * texture.getWidth() / 2,
+                    offset.getY() + pointDeparture.getY() - fogOffset - Render.detaHeight - Render.tileHeight * 1.5f, 0.2, false);
 
-                tmp = AffineTransform.getTranslateInstance(
-                    offset.getX() + pointDeparture.getX() - Render.tileWidth / 2 + 0.11f * texture.getWidth(),
-                    offset.getY() + pointDeparture.getY() - fogOffset - Render.detaHeight - Render.tileHeight);
-                tmp.scale(0.22f, 0.22f);
-                g2d.drawRenderedImage(texture, tmp);
+                Texture.draw(g2d, texture, offset.getX() + pointDeparture.getX() - Render.tileWidth / 2 + 0.11f * texture.getWidth(),
+                    offset.getY() + pointDeparture.getY() - fogOffset - Render.detaHeight - Render.tileHeight, 0.22, false);
 
-                tmp = AffineTransform.getTranslateInstance(
-                    offset.getX() + pointDeparture.getX() + Render.tileWidth / 2 - 0.33f * texture.getWidth(),
-                    offset.getY() + pointDeparture.getY() - fogOffset - Render.detaHeight - Render.tileHeight);
-                tmp.scale(0.22f, 0.22f);
-                g2d.drawRenderedImage(texture, tmp);
+                Texture.draw(g2d, texture, offset.getX() + pointDeparture.getX() + Render.tileWidth / 2 - 0.33f * texture.getWidth(),
+                    offset.getY() + pointDeparture.getY() - fogOffset - Render.detaHeight - Render.tileHeight, 0.22, false);
 
-                tmp =  AffineTransform.getTranslateInstance(
-                offset.getX() + pointDeparture.getX() - 0.25f * texture.getWidth() / 2, offset.getY() 
-                + pointDeparture.getY() - fogOffset - Render.detaHeight - Render.tileHeight * 0.5f);
-                tmp.scale(0.25f, 0.25f);
-                g2d.drawRenderedImage(texture, tmp);
+                Texture.draw(g2d, texture, offset.getX() + pointDeparture.getX() - 0.25f * texture.getWidth() / 2,
+                    offset.getY() + pointDeparture.getY() - fogOffset - Render.detaHeight - Render.tileHeight * 0.5f, 0.25, false);
                 break;
             case "POPULATION-Bardur":
             case "POPULATION-Imperius":
@@ -213,20 +209,14 @@ class TextureMotion extends Motion{
             case "POPULATION-Xinxi":
                 ac2 = AlphaComposite.getInstance(AlphaComposite.SRC_OVER, 1.0f);
                 g2d.setComposite(ac2);
-                tmp =  AffineTransform.getTranslateInstance(
-                offset.getX() + pointDeparture.getX() - 0.15f * texture.getWidth() / 2, offset.getY() 
-                + pointDeparture.getY() - Render.detaHeight - Render.tileHeight - 0.15f* texture.getHeight());
-                tmp.scale(0.15f, 0.15f);
-                g2d.drawRenderedImage(texture, tmp);
+                Texture.draw(g2d, texture, offset.getX() + pointDeparture.getX() - 0.15f * texture.getWidth() / 2,
+                    offset.getY() + pointDeparture.getY() - Render.detaHeight - Render.tileHeight - 0.15f* texture.getHeight(), 0.15, false);
                 break;
             case "STAR":
                 ac2 = AlphaComposite.getInstance(AlphaComposite.SRC_OVER, 1.0f);
                 g2d.setComposite(ac2);
-                tmp =  AffineTransform.getTranslateInstance(
-                offset.getX() + pointDeparture.getX() - 0.25f * texture.getWidth() / 2, offset.getY() 
-                + pointDeparture.getY() - Render.detaHeight - Render.tileHeight);
-                tmp.scale(0.25f, 0.25f);
-                g2d.drawRenderedImage(texture, tmp);
+                Texture.draw(g2d, texture, offset.getX() + pointDeparture.getX() - 0.25f * texture.getWidth() / 2,
+                    offset.getY() + pointDeparture.getY() - Render.detaHeight - Render.tileHeight, 0.25, false);
             case "ARROW":
                 ac2 = AlphaComposite.getInstance(AlphaComposite.SRC_OVER, 1.0f);
                 g2d.setComposite(ac2);
@@ -240,11 +230,8 @@ class TextureMotion extends Motion{
             case "BULLET":
                 ac2 = AlphaComposite.getInstance(AlphaComposite.SRC_OVER, 1.0f);
                 g2d.setComposite(ac2);
-                tmp =  AffineTransform.getTranslateInstance(
-                offset.getX() + pointDeparture.getX() - 0.25f * texture.getWidth() / 2, offset.getY() 
-                + pointDeparture.getY() - Render.detaHeight - Render.tileHeight);
-                tmp.scale(0.25f, 0.25f);
-                g2d.drawRenderedImage(texture, tmp);
+                Texture.draw(g2d, texture, offset.getX() + pointDeparture.getX() - 0.25f * texture.getWidth() / 2,
+                    offset.getY() + pointDeparture.getY() - Render.detaHeight - Render.tileHeight, 0.25, false);
                 break;
             case "SWORD":
                 ac2 = AlphaComposite.getInstance(AlphaComposite.SRC_OVER, 1.0f);
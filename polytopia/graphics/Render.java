@@ -5,10 +5,10 @@ import java.awt.geom.*;
 import java.awt.image.*;
 import java.util.ArrayList;
 import java.util.Iterator;
-import java.util.Vector;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 import polytopia.gameplay.*;
-import polytopia.gameplay.Resource;
 
 public class Render {
 
@@ -18,104 +18,170 @@ public class Render {
     static final double tileSideLength = Math.sqrt(tileWidth * tileWidth / 4 + tileHeight * tileHeight);
     static final double theta = Math.acos(1 - (tileWidth * tileWidth) / (2 * tileSideLength * tileSideLength));
 
+    /* Set when the screen may look different from the last frame; declared before
+       the camera, which requests a frame as soon as it is placed. */
+    private static final Object frameLock = new Object();
+    private static boolean frameRequested = true;
+
     public static Camera camera = new Camera(600, 100, (Math.PI - theta) / 2, tileSideLength, tileSideLength, theta, 0.3f);;
     private static Tile selected = null;
     
-    private static Vector<Motion> motions = new Vector<Motion>();
+    /* Motions are published by game threads to a lock-free queue, and drained by
+       render() into a list only the render thread touches. */
+    private static ConcurrentLinkedQueue<Motion> addedMotions = new ConcurrentLinkedQueue<>();
+    private static ConcurrentLinkedQueue<Motion> removedMotions = new ConcurrentLinkedQueue<>();
+    private static ArrayList<Motion> motions = new ArrayList<Motion>();
+    /* Whether motions held a running Motion after the last frame. */
+    private static volatile boolean animating = false;
+    private static final Font labelFont = new Font("Avenir", Font.BOLD, 32);
 
     public enum Decoration {
         UNIT_MOVE, UNIT_ATTACK;
     }
     private static Decoration[][] decorationMap;
     static {
-        decorationMap = new Decoration[Game.map.getSize()][Game.map.getSize()];
+        decorationMap = new Decoration[Game.getMap().getSize()][Game.getMap().getSize()];
+    }
+
+    /* How far (in texture pixels) sprites reach beyond their tile's anchor point, from
+       Camera::transPoint(): sideways, upwards for tall terrain and variations, and downwards. */
+    static final int marginSide = 300;
+    static final int marginUp = 800;
+    static final int marginDown = 150;
+
+    /* Bounds on the (x, y) map coordinates of the tiles whose sprites can overlap a
+       rectangle of the world (the texture pixels of Camera::transPoint()), and on x+y
+       and x-y, which cut the corners of the (x, y) box off, since the rectangle is a
+       diamond on the map. */
+    static class Viewport {
+        int minX, maxX, minY, maxY, minSum, maxSum, minDiff, maxDiff;
+
+        /* WORLD is null for the whole map. */
+        Viewport(Rectangle2D world) {
+            if (world == null) {
+                setWholeMap();
+                return;
+            }
+            double left = world.getMinX() - marginSide;
+            double right = world.getMaxX() + marginSide;
+            double top = world.getMinY() - marginDown;
+            double bottom = world.getMaxY() + marginUp;
+
+            minX = minY = minSum = minDiff = Integer.MAX_VALUE;
+            maxX = maxY = maxSum = maxDiff = Integer.MIN_VALUE;
+            double[][] corners = {{left, top}, {right, top}, {left, bottom}, {right, bottom}};
+            for (double[] corner : corners) {
+                Point2D point = camera.inverseTransWorldPoint(new Point2D.Double(corner[0], corner[1]));
+                if (point == null) {
+                    setWholeMap();
+                    return;
+                }
+                double x = point.getX(), y = point.getY();
+                minX = Integer.min(minX, (int)Math.floor(x));
+                maxX = Integer.max(maxX, (int)Math.ceil(x));
+                minY = Integer.min(minY, (int)Math.floor(y));
+                maxY = Integer.max(maxY, (int)Math.ceil(y));
+                minSum = Integer.min(minSum, (int)Math.floor(x + y));
+                maxSum = Integer.max(maxSum, (int)Math.ceil(x + y));
+                minDiff = Integer.min(minDiff, (int)Math.floor(x - y));
+                maxDiff = Integer.max(maxDiff, (int)Math.ceil(x - y));
+            }
+        }
+
+        private void setWholeMap() {
+            int size = Game.getMap().getSize();
+            minX = minY = minSum = minDiff = -2 * size;
+            maxX = maxY = maxSum = maxDiff = 2 * size;
+        }
+
+        boolean contains(int x, int y) {
+            return x >= minX && x <= maxX && y >= minY && y <= maxY
+                    && x + y >= minSum && x + y <= maxSum 
+                    && x - y >= minDiff && x - y <= maxDiff;
+        }
+    }
+
+    /* The viewport of the current frame, i.e. of the screen. */
+    private static Viewport viewport;
+    private static TerrainLayer terrainLayer = new TerrainLayer();
+    private static Boundaries boundaries = new Boundaries();
+
+    /* Whether the tile drawn at map coordinates (X, Y) can show up on screen. */
+    static boolean isVisible(int x, int y) {
+        return viewport.contains(x, y);
+    }
+
+    /* Tiles may look different, e.g. after a Consequence is applied: re-render the
+       cached terrain of the ones that do, and rebuild the boundaries. Can be called
+       from any thread. */
+    public static void touchTerrain() {
+        terrainLayer.touch();
+        boundaries.touch();
+        requestFrame();
+    }
+
+    /* Something on screen changed: the next frame should be drawn. Can be called from any thread. */
+    public static void requestFrame() {
+        synchronized(frameLock) {
+            frameRequested = true;
+            frameLock.notifyAll();
+        }
+    }
+
+    /* Block until there is a frame to draw, i.e. one was requested since the last call,
+       or a Motion is running, or the camera is moving, so that an idle game draws nothing. */
+    public static void awaitFrame() throws InterruptedException {
+        synchronized(frameLock) {
+            while (!frameRequested && !animating && !camera.isMoving())
+                frameLock.wait();
+            frameRequested = false;
+        }
     }
 
     public static void setSelected(Tile tile){
         selected = tile;
+        requestFrame();
     }
     public static Tile getSelected(){
         return selected;
     }
 
     public static void render(Graphics2D g2d){
-        Tile[][] grid = Game.map.getGrid();
+        Tile[][] grid = Game.getMap().getGrid();
         camera.updateCamera();
-        camera.setGraphics2D(g2d);
+        Rectangle screen = g2d.getClipBounds();
+        if (screen == null)
+            screen = g2d.getDeviceConfiguration().getBounds();
+        viewport = new Viewport(camera.inverseTransRect(screen));
         double currentTime = System.currentTimeMillis();
-        synchronized(motions) {
-            Iterator<Motion> iterator = motions.iterator();
-            while(iterator.hasNext()){
-                Motion m = iterator.next();
-                if (m.update(currentTime)){
-                    iterator.remove();
-                    if (m instanceof MovableMotion) {
-                        MovableMotion vm = (MovableMotion) m;
-                        vm.getSubject().setMotion(null);
-                    }
-                }
-            }
+        for (Motion m = addedMotions.poll(); m != null; m = addedMotions.poll())
+            motions.add(m);
+        for (Motion m = removedMotions.poll(); m != null; m = removedMotions.poll()) {
+            motions.remove(m);
+            m.getCompletion().complete(null);
         }
-        for (int d = 0; d <= grid.length+grid[0].length-2; d++) {
-            for (int x = 0; x < grid.length && x <= d; x++) {
-                int y = d - x;
-                if (y < grid[x].length) {
-                    Tile tile = grid[y][x];
-                    Player humanPlayer = Game.getHumanPlayer();
-
-                    if (!humanPlayer.getVision().contains(tile)) {
-                        // Draw FOG instead
-                        BufferedImage fog = Texture.getTextureByName("FOG");
-                        Point2D point = camera.transPoint(new Point2D.Double((double)x, (double)y));
-                        if (tile.getMotion() != null) {
-                            Point2D motionOffset = tile.getMotion().getOffset();
-                            point.setLocation(point.getX() + motionOffset.getX(), point.getY() + motionOffset.getY());
-                        }
-
-                        g2d.drawImage (fog, null, (int)point.getX() - fog.getWidth() / 2, (int)point.getY() - fog.getHeight());
-                        continue;
-                    }
-
-                    // Draw terrain texture
-                    BufferedImage terrain = Texture.getTerrainTexture(tile);
-                    Point2D point = camera.transPoint(new Point2D.Double((double)x, (double)y));
-                    Tile.TerrainType type = tile.getTerrainType();
-                
-                    if (tile.getMotion() != null) {
-                        Point2D motionOffset = tile.getMotion().getOffset();
-                        point.setLocation(point.getX() + motionOffset.getX(), point.getY() + motionOffset.getY());
-                        
-                    }
-                    
-                    g2d.drawImage (terrain, null, (int)point.getX() - terrain.getWidth() / 2, (int)point.getY() - terrain.getHeight());
-
-                    
-                    // Draw variation texture
-                    if(tile.getVariation() != null) {
-                        int voffset = 210;
-                        if (type == Tile.TerrainType.SHORE || type == Tile.TerrainType.OCEAN)
-                            voffset = 180;
-
-                        BufferedImage variation;
-                        
-                        if (tile.getVariation() instanceof Resource
-                            && tile.getVariation().getActions().length == 1
-                            && tile.getVariation().getActions()[0].isVisibleTo(Game.getHumanPlayer())) 
-                            variation = Texture.getTextureByName (
-                            tile.getVariation().getStyle() == null ? 
-                            String.join("-", tile.getVariation().toString(), "active") :
-                            String.join("-", tile.getVariation().toString(), tile.getVariation().getStyle().toString(), "active")
-                            );
-                        else
-                            variation = Texture.getVariationTexture (tile.getVariation());
-                        
-                        
-                        g2d.drawImage (variation, null, (int)point.getX() - variation.getWidth()/2, (int)point.getY() - variation.getHeight() - voffset + Integer.min(tileHeight, variation.getHeight()/2));
-                    }
+        Iterator<Motion> iterator = motions.iterator();
+        while(iterator.hasNext()){
+            Motion m = iterator.next();
+            boolean finished = m.update(currentTime);
+            if (m instanceof MovableMotion && ((MovableMotion) m).getSubject() instanceof Tile) {
+                // Moving tiles are re-rendered every frame, and once more when they stop
+                Tile tile = (Tile) ((MovableMotion) m).getSubject();
+                terrainLayer.touch(tile.getY(), tile.getX());
+            }
+            if (finished){
+                iterator.remove();
+                if (m instanceof MovableMotion) {
+                    MovableMotion vm = (MovableMotion) m;
+                    vm.getSubject().setMotion(null);
                 }
             }
         }
-
+        animating = !motions.isEmpty();
+        // Terrain, variations and fog, from the cache
+        terrainLayer.draw(g2d, grid);
+        camera.setGraphics2D(g2d);
+        int size = grid.length;
 
         if(selected != null) {
             Tile.TerrainType type = selected.getTerrainType();
@@ -134,21 +200,19 @@ public class Render {
             g2d.drawLine(downPointX, downPointY - 2 * tileHeight+10, downPointX - terrain.getWidth() / 2+15, downPointY - tileHeight);
 
             if(selected.getVariation() instanceof City){
-                City c = (City)selected.getVariation();
-                ArrayList<BoundaryLine> boundary = c.getBoundary(Game.getHumanPlayer());
-                for(BoundaryLine line : boundary){
-                    line.draw(g2d, Color.black, 12.0f);
-                }
+                boundaries.draw(g2d, (City)selected.getVariation(), Color.black, 12.0f);
             }
         }
 
-        for(Player player : Game.players){
+        for(Player player : Game.getPlayers()){
             presentPlayerCities(g2d, player);
             ArrayList<Unit> units = player.getUnits();
 
             for(Unit u : units){
                 Tile tile = u.getPosition();
                 int health = u.getHealth();
+                if (!isVisible(tile.getY(), tile.getX()))
+                    continue;
                 if (!Game.getHumanPlayer().getVision().contains(tile))
                     continue;
                 Point2D point = camera.transPoint(new Point2D.Double((double)tile.getY(), (double)tile.getX()));
@@ -163,17 +227,16 @@ public class Render {
                 if (type == Tile.TerrainType.SHORE || type == Tile.TerrainType.OCEAN)
                     voffset = 180;
 
-                String textureName = u.toString();
+                Texture.Highlight highlight = Texture.Highlight.NONE;
                 if (u.getOwnerPlayer() == Game.getHumanPlayer() && Game.getHumanPlayer() == Game.getCurrentPlayer())
-                    textureName = String.join("-", textureName, (u.isMovable() || u.isAttackable() ? "active" : "inactive"));
+                    highlight = u.isMovable() || u.isAttackable() ? Texture.Highlight.ACTIVE : Texture.Highlight.INACTIVE;
                 
-                BufferedImage unitTexture = Texture.getTextureByName(textureName);
-                AffineTransformOp op = u.isFlipped() ? new AffineTransformOp(new AffineTransform(-1, 0, 0, 1, unitTexture.getWidth(), 0),null) : null;
-                g2d.drawImage (unitTexture, op, (int)point.getX() - unitTexture.getWidth()/2, 
-                (int)point.getY() - unitTexture.getHeight() - voffset + Integer.min(tileHeight, unitTexture.getHeight()/2));
+                BufferedImage unitTexture = Texture.getUnitTexture(u, highlight);
+                Texture.draw(g2d, unitTexture, (int)point.getX() - unitTexture.getWidth()/2, 
+                (int)point.getY() - unitTexture.getHeight() - voffset + Integer.min(tileHeight, unitTexture.getHeight()/2), 1, u.isFlipped());
 
                 // draw health
-                g2d.setFont(new Font("Avenir", Font.BOLD, 32));
+                g2d.setFont(labelFont);
                 g2d.setColor(Color.black);
                 g2d.drawString("" + health, (int)point.getX() - unitTexture.getWidth() + 2, 
                 (int)point.getY() - unitTexture.getHeight() - voffset + Integer.min(tileHeight, unitTexture.getHeight()/2) + 22);
@@ -184,9 +247,9 @@ public class Render {
         }
 
         g2d.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, 0.7f));
-        for(int i = 0; i < Game.map.getSize(); i++){
-            for(int j = 0; j < Game.map.getSize(); j++){
-                if(decorationMap[i][j] != null){
+        for(int i = Integer.max(0, viewport.minX); i <= Integer.min(size - 1, viewport.maxX); i++){
+            for(int j = Integer.max(0, viewport.minY); j <= Integer.min(size - 1, viewport.maxY); j++){
+                if(decorationMap[i][j] != null && isVisible(i, j)){
                     Point2D point = camera.transPoint(new Point2D.Double((double)i, (double)j));
                     BufferedImage markTexture;
                     markTexture = Texture.getTextureByName("MOVEMENT");
@@ -196,21 +259,19 @@ public class Render {
                     if(decorationMap[i][j] == Decoration.UNIT_ATTACK){
                         markTexture = Texture.getTextureByName("ATTACK");
                     }
-                    g2d.drawImage (markTexture, null, (int)point.getX() - markTexture.getWidth()/2, 
+                    Texture.draw(g2d, markTexture, (int)point.getX() - markTexture.getWidth()/2, 
                     (int)point.getY() - markTexture.getHeight() / 2 - tileHeight - detaHeight);
                 }
             }
         }
-        synchronized(motions) {
-            for(Motion m : motions){
-                if(m instanceof TextureMotion){
-                    TextureMotion tm = (TextureMotion) m;
-                    tm.drawTexture(g2d);
-                }
-                if(m instanceof StringMotion){
-                    StringMotion sm = (StringMotion) m;
-                    sm.drawString(g2d);
-                }
+        for(Motion m : motions){
+            if(m instanceof TextureMotion){
+                TextureMotion tm = (TextureMotion) m;
+                tm.drawTexture(g2d);
+            }
+            if(m instanceof StringMotion){
+                StringMotion sm = (StringMotion) m;
+                sm.drawString(g2d);
             }
         }
     }
@@ -229,60 +290,38 @@ public class Render {
             side = s;
         }
 
-        void draw(Graphics2D g2d, Color c, float strokeWidth){
-            Point2D point = camera.transPoint(new Point2D.Double((double)x, (double)y));
-            g2d.setStroke(new BasicStroke(strokeWidth));
-            g2d.setColor(c);
-            int downPointX = (int)point.getX();
-            int downPointY = (int)point.getY() - detaHeight;
-            switch (side){
-                case LEFTUP:
-                g2d.drawLine(downPointX, downPointY - 2 * tileHeight, downPointX - tileWidth / 2, downPointY - tileHeight);
-                break;
-                case RIGHTUP:
-                g2d.drawLine(downPointX, downPointY - 2 * tileHeight, downPointX + tileWidth / 2, downPointY - tileHeight);
-                break;
-                case LEFTDOWN:
-                g2d.drawLine(downPointX, downPointY, downPointX - tileWidth / 2, downPointY - tileHeight);
-                break;
-                case RIGHTDOWN:
-                g2d.drawLine(downPointX, downPointY, downPointX + tileWidth / 2, downPointY - tileHeight);
-                break;
-            }
-        }
-
-        void draw(Graphics2D g2d, Color c, float strokeWidth, float alpha){
+        /* Add the line, in the world, to PATH. */
+        void appendTo(Path2D path){
             Point2D point = camera.transPoint(new Point2D.Double((double)x, (double)y));
-            g2d.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, alpha));
-            g2d.setStroke(new BasicStroke(strokeWidth));
-            g2d.setColor(c);
             int downPointX = (int)point.getX();
             int downPointY = (int)point.getY() - detaHeight;
             switch (side){
                 case LEFTUP:
-                g2d.drawLine(downPointX, downPointY - 2 * tileHeight, downPointX - tileWidth / 2, downPointY - tileHeight);
+                path.moveTo(downPointX, downPointY - 2 * tileHeight);
+                path.lineTo(downPointX - tileWidth / 2, downPointY - tileHeight);
                 break;
                 case RIGHTUP:
-                g2d.drawLine(downPointX, downPointY - 2 * tileHeight, downPointX + tileWidth / 2, downPointY - tileHeight);
+                path.moveTo(downPointX, downPointY - 2 * tileHeight);
+                path.lineTo(downPointX + tileWidth / 2, downPointY - tileHeight);
                 break;
                 case LEFTDOWN:
-                g2d.drawLine(downPointX, downPointY, downPointX - tileWidth / 2, downPointY - tileHeight);
+                path.moveTo(downPointX, downPointY);
+                path.lineTo(downPointX - tileWidth / 2, downPointY - tileHeight);
                 break;
                 case RIGHTDOWN:
-                g2d.drawLine(downPointX, downPointY, downPointX + tileWidth / 2, downPointY - tileHeight);
+                path.moveTo(downPointX, downPointY);
+                path.lineTo(downPointX + tileWidth / 2, downPointY - tileHeight);
                 break;
             }
         }
     }
     
     static private void presentPlayerCities(Graphics2D g2d, Player p){
-        ArrayList<BoundaryLine> boundary = p.getBoundary(Game.getHumanPlayer());
-        for(BoundaryLine line : boundary){
-            line.draw(g2d, p.getFaction().themeColor, 20.0f);
-        }
+        boundaries.draw(g2d, p, new Color(p.getFaction().themeRGB), 20.0f);
         ArrayList<City> cities = p.getCities();
         for(City c : cities){
-            if (Game.getHumanPlayer().getVision().contains(c.getOwnerTile()))
+            if (isVisible(c.getOwnerTile().getY(), c.getOwnerTile().getX())
+                && Game.getHumanPlayer().getVision().contains(c.getOwnerTile()))
                 presentCity(g2d, c, c.getOwnerPlayer() == Game.getHumanPlayer());
         }
     }
@@ -296,21 +335,20 @@ public class Render {
         BufferedImage starTexture = Texture.getTextureByName("STAR");
         
         int bias = 5;
-        Color color = c.getOwnerPlayer().getFaction().themeColor;
+        Color color = new Color(c.getOwnerPlayer().getFaction().themeRGB);
         //AlphaComposite ac2 = AlphaComposite.getInstance(AlphaComposite.SRC_OUT, 0.5f);
         //g2d.setComposite(ac2);
         g2d.setColor(new Color(color.getRed()*4/5, color.getGreen()*4/5, color.getBlue()*4/5, 180));
         g2d.fillRect((int)point.getX() - tileWidth / 2, (int)point.getY() - tileHeight - 30, tileWidth - bias, 40);
 
-        g2d.setFont(new Font("Avenir", Font.BOLD, 32));
+        g2d.setFont(labelFont);
         g2d.setColor(Color.black);
         g2d.drawString(nameOfCity, (int)point.getX() - nameOfCity.length() * 8+3, (int)point.getY() - tileHeight+2);
         g2d.setColor(Color.white);
         g2d.drawString(nameOfCity, (int)point.getX() - nameOfCity.length() * 8, (int)point.getY() - tileHeight);
 
-        AffineTransformOp op = new AffineTransformOp(AffineTransform.getScaleInstance(0.1f, 0.1f), null);
-        g2d.drawImage (starTexture, op, (int)point.getX() + 70, (int)point.getY() - tileHeight - 30);
-        g2d.setFont(new Font("Avenir", Font.BOLD, 32));
+        Texture.draw(g2d, starTexture, (int)point.getX() + 70, (int)point.getY() - tileHeight - 30, 0.1, false);
+        g2d.setFont(labelFont);
         g2d.setColor(Color.black);
         g2d.drawString(String.valueOf(stars), (int)point.getX() + 108 + 2, (int)point.getY() - tileHeight + 2);
         g2d.setColor(Color.yellow);
@@ -345,25 +383,28 @@ public class Render {
         }
     }
 
-    static public void addMotion(Motion m){
-        synchronized(motions){
-            motions.add(m);
-        }
+    /* Can be called from any thread; the Motion starts running on the next frame.
+       Returns its completion, on which whatever waits for it can be scheduled. */
+    static public CompletableFuture<Void> addMotion(Motion m){
+        addedMotions.add(m);
+        requestFrame();
+        return m.getCompletion();
     }
     static public void removeMotion(Motion m){
-        synchronized(motions){
-            motions.remove(m);
-        }
+        removedMotions.add(m);
+        requestFrame();
     }
 
     static public void clearDecorationMap(){
-        for (int i = 0; i < Game.map.getSize(); i++)
-            for (int j = 0; j < Game.map.getSize(); j++)
+        for (int i = 0; i < Game.getMap().getSize(); i++)
+            for (int j = 0; j < Game.getMap().getSize(); j++)
                 decorationMap[i][j] = null;
+        requestFrame();
     }
 
     static public void setDecorationMap(int x, int y, Decoration type){
-        if (TileMap.isValid(Game.map.getGrid(), x, y))
+        if (TileMap.isValid(Game.getMap().getGrid(), x, y))
             decorationMap[x][y] = type;
+        requestFrame();
     }
 }
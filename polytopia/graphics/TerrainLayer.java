@@ -0,0 +1,219 @@
+package polytopia.graphics;
+
+import java.awt.*;
+import java.awt.geom.*;
+import java.awt.image.*;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import polytopia.gameplay.*;
+import polytopia.gameplay.Resource;
+
+/** The terrain, variations and fog of the map, pre-rendered at the current scale
+    into CHUNK x CHUNK images of the device, so that a frame only blits the chunks
+    on screen. A chunk is rendered when it is first shown, again when the scale
+    changes, while a tile in a Motion overlaps it, and when a tile it shows would now
+    be drawn with other textures: Consequences call Render::touchTerrain() once
+    applied, and the next frame compares every rendered tile with its textures. */
+class TerrainLayer {
+
+    static final int CHUNK = 512;
+    /* 1 MB each; the least recently shown chunks are dropped beyond that. */
+    static final int MAX_CHUNKS = 48;
+
+    /* Chunk (cx, cy) covers [cx*CHUNK, (cx+1)*CHUNK) x [cy*CHUNK, (cy+1)*CHUNK)
+       of the world scaled to the device, i.e. relative to the world origin. */
+    private LinkedHashMap<Long, BufferedImage> chunks = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, BufferedImage> eldest) {
+            return size() > MAX_CHUNKS;
+        }
+    };
+    private HashSet<Long> dirty = new HashSet<>();
+
+    /* The map and the world to device scale the chunks are rendered for. */
+    private Tile[][] grid;
+    private double scale;
+    /* Textures grid[y][x] was last rendered with, at y*size+x; null if it was not. */
+    private BufferedImage[] terrains;
+    private BufferedImage[] variations;
+
+    private volatile boolean touched = false;
+
+    private static long getKey(int cx, int cy) {
+        return ((long)cx << 32) | (cy & 0xffffffffL);
+    }
+
+    /* Tiles may have changed. Can be called from any thread. */
+    void touch() {
+        touched = true;
+    }
+
+    /* The tile drawn at map coordinates (X, Y) changed: re-render the chunks its sprites reach. */
+    void touch(int x, int y) {
+        Point2D point = Render.camera.transPoint(new Point2D.Double((double)x, (double)y));
+        int fromX = (int)Math.floor((point.getX() - Render.marginSide) * scale / CHUNK);
+        int toX = (int)Math.floor((point.getX() + Render.marginSide) * scale / CHUNK);
+        int fromY = (int)Math.floor((point.getY() - Render.marginUp) * scale / CHUNK);
+        int toY = (int)Math.floor((point.getY() + Render.marginDown) * scale / CHUNK);
+        for (int cx = fromX; cx <= toX; cx++)
+            for (int cy = fromY; cy <= toY; cy++) {
+                long key = getKey(cx, cy);
+                if (chunks.containsKey(key))
+                    dirty.add(key);
+            }
+    }
+
+    /* Blit the layer of GRID under the camera, before the camera transforms G2D. */
+    void draw(Graphics2D g2d, Tile[][] grid) {
+        AffineTransform device = g2d.getTransform();
+        AffineTransform toDevice = new AffineTransform(device);
+        toDevice.concatenate(Render.camera.getTransform());
+        // Neither the camera nor Swing rotate, so the scale is uniform
+        double scale = toDevice.getScaleX();
+        if (grid != this.grid || scale != this.scale) {
+            this.grid = grid;
+            this.scale = scale;
+            chunks.clear();
+            dirty.clear();
+            terrains = new BufferedImage[grid.length * grid.length];
+            variations = new BufferedImage[grid.length * grid.length];
+            touched = false;
+        }
+        if (touched) {
+            touched = false;
+            compare();
+        }
+
+        // Blit in device space, at whole pixels
+        int originX = (int)Math.round(toDevice.getTranslateX());
+        int originY = (int)Math.round(toDevice.getTranslateY());
+        g2d.setTransform(new AffineTransform());
+        Rectangle screen = g2d.getClipBounds();
+        if (screen == null)
+            screen = g2d.getDeviceConfiguration().getBounds();
+        // Offscreen devices may be unbounded, but the map is not
+        screen = screen.intersection(getBounds(grid.length, originX, originY));
+        int fromX = Math.floorDiv(screen.x - originX, CHUNK), toX = Math.floorDiv(screen.x + screen.width - 1 - originX, CHUNK);
+        int fromY = Math.floorDiv(screen.y - originY, CHUNK), toY = Math.floorDiv(screen.y + screen.height - 1 - originY, CHUNK);
+        for (int cy = fromY; cy <= toY && !screen.isEmpty(); cy++)
+            for (int cx = fromX; cx <= toX; cx++)
+                g2d.drawImage(getChunk(g2d, cx, cy), originX + cx * CHUNK, originY + cy * CHUNK, null);
+        g2d.setTransform(device);
+    }
+
+    /* Device bounds of the sprites of a map of SIZE, with the world origin at (ORIGINX, ORIGINY). */
+    private Rectangle getBounds(int size, int originX, int originY) {
+        Rectangle2D world = null;
+        int[][] corners = {{0, 0}, {size - 1, 0}, {0, size - 1}, {size - 1, size - 1}};
+        for (int[] corner : corners) {
+            Point2D point = Render.camera.transPoint(new Point2D.Double(corner[0], corner[1]));
+            if (world == null)
+                world = new Rectangle2D.Double(point.getX(), point.getY(), 0, 0);
+            else
+                world.add(point);
+        }
+        return new Rectangle(
+            originX + (int)Math.floor((world.getMinX() - Render.marginSide) * scale),
+            originY + (int)Math.floor((world.getMinY() - Render.marginUp) * scale),
+            (int)Math.ceil((world.getWidth() + 2 * Render.marginSide) * scale) + 1,
+            (int)Math.ceil((world.getHeight() + Render.marginUp + Render.marginDown) * scale) + 1);
+    }
+
+    /* Mark the chunks of the rendered tiles that would now be drawn with other textures. */
+    private void compare() {
+        int size = grid.length;
+        for (int y = 0; y < size; y++)
+            for (int x = 0; x < size; x++) {
+                int index = y * size + x;
+                if (terrains[index] == null)
+                    continue;
+                Tile tile = grid[y][x];
+                if (getTerrainTexture(tile) != terrains[index] || getVariationTexture(tile) != variations[index]) {
+                    terrains[index] = variations[index] = null;
+                    touch(x, y);
+                }
+            }
+    }
+
+    private BufferedImage getChunk(Graphics2D g2d, int cx, int cy) {
+        long key = getKey(cx, cy);
+        BufferedImage chunk = chunks.get(key);
+        if (chunk != null && !dirty.remove(key))
+            return chunk;
+        if (chunk == null) {
+            chunk = g2d.getDeviceConfiguration().createCompatibleImage(CHUNK, CHUNK, Transparency.TRANSLUCENT);
+            chunks.put(key, chunk);
+            dirty.remove(key);
+        }
+
+        Graphics2D g = chunk.createGraphics();
+        g.setRenderingHints(g2d.getRenderingHints());
+        g.setComposite(AlphaComposite.Clear);
+        g.fillRect(0, 0, CHUNK, CHUNK);
+        g.setComposite(AlphaComposite.SrcOver);
+        g.translate(-cx * CHUNK, -cy * CHUNK);
+        g.scale(scale, scale);
+        render(g, new Render.Viewport(new Rectangle2D.Double(
+            cx * CHUNK / scale, cy * CHUNK / scale, CHUNK / scale, CHUNK / scale)));
+        g.dispose();
+        return chunk;
+    }
+
+    /* Draw the tiles of VIEWPORT, diagonal by diagonal, back to front. */
+    private void render(Graphics2D g2d, Render.Viewport viewport) {
+        int size = grid.length;
+        for (int d = Integer.max(0, viewport.minSum); d <= Integer.min(2 * size - 2, viewport.maxSum); d++) {
+            int fromX = Integer.max(Integer.max(0, d - size + 1), Integer.max(viewport.minX, d - viewport.maxY));
+            int toX = Integer.min(Integer.min(size - 1, d), Integer.min(viewport.maxX, d - viewport.minY));
+            // x - y = 2x - d
+            fromX = Integer.max(fromX, Math.floorDiv(d + viewport.minDiff + 1, 2));
+            toX = Integer.min(toX, Math.floorDiv(d + viewport.maxDiff, 2));
+            for (int x = fromX; x <= toX; x++) {
+                int y = d - x;
+                Tile tile = grid[y][x];
+                int index = y * size + x;
+                terrains[index] = getTerrainTexture(tile);
+                variations[index] = getVariationTexture(tile);
+                drawTile(g2d, tile, x, y, terrains[index], variations[index]);
+            }
+        }
+    }
+
+    /* FOG if the human player has not revealed TILE. */
+    private static BufferedImage getTerrainTexture(Tile tile) {
+        if (!Game.getHumanPlayer().getVision().isRevealed(tile.getX(), tile.getY()))
+            return Texture.getTextureByName("FOG");
+        return Texture.getTerrainTexture(tile);
+    }
+
+    /* null if TILE has no variation, or is not revealed. */
+    private static BufferedImage getVariationTexture(Tile tile) {
+        if (tile.getVariation() == null || !Game.getHumanPlayer().getVision().isRevealed(tile.getX(), tile.getY()))
+            return null;
+
+        boolean active = tile.getVariation() instanceof Resource
+            && tile.getVariation().getActions().length == 1
+            && tile.getVariation().getActions()[0].isVisibleTo(Game.getHumanPlayer());
+        return Texture.getVariationTexture (tile.getVariation(), active);
+    }
+
+    private static void drawTile(Graphics2D g2d, Tile tile, int x, int y, BufferedImage terrain, BufferedImage variation) {
+        Point2D point = Render.camera.transPoint(new Point2D.Double((double)x, (double)y));
+        if (tile.getMotion() != null) {
+            Point2D motionOffset = tile.getMotion().getOffset();
+            point.setLocation(point.getX() + motionOffset.getX(), point.getY() + motionOffset.getY());
+        }
+
+        Texture.draw(g2d, terrain, (int)point.getX() - terrain.getWidth() / 2, (int)point.getY() - terrain.getHeight());
+
+        if (variation != null) {
+            Tile.TerrainType type = tile.getTerrainType();
+            int voffset = 210;
+            if (type == Tile.TerrainType.SHORE || type == Tile.TerrainType.OCEAN)
+                voffset = 180;
+            Texture.draw(g2d, variation, (int)point.getX() - variation.getWidth()/2, (int)point.getY() - variation.getHeight() - voffset + Integer.min(Render.tileHeight, variation.getHeight()/2));
+        }
+    }
+}
@@ -1,58 +1,236 @@
 package polytopia.graphics;
 
+import java.awt.Graphics2D;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Point2D;
 import java.awt.image.BufferedImage;
 import javax.imageio.*;
 import java.io.*;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import polytopia.gameplay.Tile;
 import polytopia.gameplay.TileVariation;
+import polytopia.gameplay.Unit;
+import polytopia.gameplay.Player.Faction;
 
+/** Textures, by the names in resources/textures.XML.
+	A texture is decoded the first time it is asked for, unless it was loaded
+	beforehand, in parallel on a small pool: the textures common to all factions
+	while the LaunchWindow is shown, and those of the factions in a game when it
+	starts, so that the first frames do not wait for the disk. */
 public abstract class Texture {
 
-	/* Static pool of textures. */
-	private static HashMap<String, BufferedImage> texturePool;
+	/* Progress of a batch of textures: LOADED out of TOTAL are decoded. */
+	public interface Progress {
+		void update(int loaded, int total);
+	}
 
-	static {
-		texturePool = new HashMap<String, BufferedImage>();
+	/* Paths of the textures, by name. */
+	private static Properties paths = new Properties();
+
+	/* Static pool of textures, decoded or being decoded. */
+	private static ConcurrentHashMap<String, CompletableFuture<BufferedImage>> texturePool = new ConcurrentHashMap<>();
 
-		Properties paths = new Properties();
+	private static final int LOADER_THREADS = Integer.max(1, Integer.min(4, Runtime.getRuntime().availableProcessors()));
+	private static ExecutorService loader;
+
+	/* Atlases of pre-scaled textures, by scale; the least recently used ones are dropped.
+	   There is room for every camera zoom level, the camera's initial scale and the
+	   buttons, drawn at screen scale, so that zooming back and forth never repacks an atlas. */
+	private static final int MAX_ATLASES = Camera.cameraZoomLevels + 2;
+	private static LinkedHashMap<Double, TextureAtlas> atlases = new LinkedHashMap<>(16, 0.75f, true) {
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Double, TextureAtlas> eldest) {
+			return size() > MAX_ATLASES;
+		}
+	};
 
+	static {
 		try {
 			FileInputStream fstream = new FileInputStream("./resources/textures.XML");
 			paths.loadFromXML(fstream);
 		} catch(IOException e) {
 			System.out.println("IO Error");
 		}
+	}
+
+	/* The faction a texture name belongs to, e.g. FIELD-Xinxi, or null. */
+	private static Faction getFaction(String name) {
+		for (String part : name.split("-"))
+			for (Faction faction : Faction.values())
+				if (part.equals(faction.toString()))
+					return faction;
+		return null;
+	}
+
+	/* Start decoding the textures that are not specific to a faction. */
+	public static CompletableFuture<Void> loadCommon(Progress progress) {
+		ArrayList<String> names = new ArrayList<>();
+		for (String name : paths.stringPropertyNames())
+			if (getFaction(name) == null)
+				names.add(name);
+		return load(names, progress);
+	}
+
+	/* Start decoding the textures of FACTIONS. */
+	public static CompletableFuture<Void> loadFactions(Collection<Faction> factions, Progress progress) {
+		ArrayList<String> names = new ArrayList<>();
+		for (String name : paths.stringPropertyNames())
+			if (factions.contains(getFaction(name)))
+				names.add(name);
+		return load(names, progress);
+	}
+
+	/* Decode NAMES on the loader pool, reporting to PROGRESS (if not null), in order, from its threads. */
+	private static synchronized CompletableFuture<Void> load(ArrayList<String> names, Progress progress) {
+		if (loader == null)
+			loader = Executors.newFixedThreadPool(LOADER_THREADS, r -> {
+				Thread t = new Thread(r, "texture-loader");
+				t.setDaemon(true);
+				return t;
+			});
+
+		AtomicInteger loaded = new AtomicInteger();
+		CompletableFuture<?>[] futures = new CompletableFuture<?>[names.size()];
+		for (int i = 0; i < futures.length; i++) {
+			String name = names.get(i);
+			futures[i] = CompletableFuture.runAsync(() -> {
+				getTextureByName(name);
+				if (progress != null)
+					synchronized (progress) {
+						progress.update(loaded.incrementAndGet(), futures.length);
+					}
+			}, loader);
+		}
+		return CompletableFuture.allOf(futures);
+	}
 
-		paths.forEach(
-			(tileDes, path) -> {
+	/* Decodes the texture on this thread if nobody has started to, or else waits for it. */
+	public static BufferedImage getTextureByName(String name) {
+		CompletableFuture<BufferedImage> future = texturePool.get(name);
+		if (future == null) {
+			String path = paths.getProperty(name);
+			if (path == null)
+				return null;
+			CompletableFuture<BufferedImage> mine = new CompletableFuture<>();
+			future = texturePool.putIfAbsent(name, mine);
+			if (future == null) {
+				future = mine;
 				BufferedImage image = null;
 				try {
-					image = ImageIO.read(new File((String)path));
+					image = ImageIO.read(new File(path));
 				} catch (IOException e) {
 					System.out.println(path + " not found");
+				} finally {
+					mine.complete(image);
 				}
-				texturePool.put((String)tileDes, image);
-		});
+			}
+		}
+		return future.join();
 	}
 
-	public static BufferedImage getTextureByName(String name) {
-		return texturePool.get(name);
+	/* How a unit is highlighted: not at all, or as able to act or not on its turn. */
+	public enum Highlight {
+		NONE, ACTIVE, INACTIVE;
 	}
 
-	public static BufferedImage getTerrainTexture(Tile tile) {
-		String terrainDesc = tile.getStyle() == null ? tile.getTerrainType().toString() :
-							String.join("-", tile.getTerrainType().toString(), tile.getStyle().toString());
-		
-		return texturePool.get(terrainDesc);
+	/* Textures by type, resolved from their names the first time they are asked for,
+	   so that rendering does not build and hash names: by terrain, [1 + style];
+	   by variation name, [(1 + style) * 2 + active]; by unit type, [faction * 3 + highlight]. */
+	private static final int FACTIONS = Faction.values().length;
+	private static EnumMap<Tile.TerrainType, BufferedImage[]> terrainTextures = new EnumMap<>(Tile.TerrainType.class);
+	private static HashMap<String, BufferedImage[]> variationTextures = new HashMap<>();
+	private static EnumMap<Unit.UnitType, BufferedImage[]> unitTextures = new EnumMap<>(Unit.UnitType.class);
+	/* Resolved, but there is no such texture. */
+	private static final BufferedImage MISSING = new BufferedImage(1, 1, BufferedImage.TYPE_INT_ARGB);
+
+	private static BufferedImage resolved(BufferedImage texture) {
+		return texture == null ? MISSING : texture;
+	}
+
+	public static synchronized BufferedImage getTerrainTexture(Tile tile) {
+		BufferedImage[] textures = terrainTextures.computeIfAbsent(tile.getTerrainType(), k -> new BufferedImage[1 + FACTIONS]);
+		int index = tile.getStyle() == null ? 0 : 1 + tile.getStyle().ordinal();
+		if (textures[index] == null) {
+			String terrainDesc = tile.getStyle() == null ? tile.getTerrainType().toString() :
+								String.join("-", tile.getTerrainType().toString(), tile.getStyle().toString());
+			textures[index] = resolved(getTextureByName(terrainDesc));
+		}
+		return textures[index] == MISSING ? null : textures[index];
 	}
 
 	public static BufferedImage getVariationTexture(TileVariation variation) {
-		String variationDesc = variation.getStyle() == null ? variation.toString() :
-							String.join("-", variation.toString(), variation.getStyle().toString());
+		return getVariationTexture(variation, false);
+	}
+
+	/* The -active texture if ACTIVE, e.g. of a resource the human player can harvest. 
+	   Variations are told apart by toString(), which is the constant name of their type. */
+	public static synchronized BufferedImage getVariationTexture(TileVariation variation, boolean active) {
+		BufferedImage[] textures = variationTextures.computeIfAbsent(variation.toString(), k -> new BufferedImage[(1 + FACTIONS) * 2]);
+		int index = (variation.getStyle() == null ? 0 : 1 + variation.getStyle().ordinal()) * 2 + (active ? 1 : 0);
+		if (textures[index] == null) {
+			String variationDesc = variation.getStyle() == null ? variation.toString() :
+								String.join("-", variation.toString(), variation.getStyle().toString());
+			if (active)
+				variationDesc = String.join("-", variationDesc, "active");
+			textures[index] = resolved(getTextureByName(variationDesc));
+		}
+		return textures[index] == MISSING ? null : textures[index];
+	}
+
+	public static synchronized BufferedImage getUnitTexture(Unit unit, Highlight highlight) {
+		BufferedImage[] textures = unitTextures.computeIfAbsent(unit.getType(), k -> new BufferedImage[FACTIONS * 3]);
+		Faction faction = unit.getOwnerPlayer().getFaction();
+		int index = faction.ordinal() * 3 + highlight.ordinal();
+		if (textures[index] == null) {
+			String textureName = String.join("-", unit.getType().toString(), faction.toString());
+			if (highlight != Highlight.NONE)
+				textureName = String.join("-", textureName, highlight.toString().toLowerCase());
+			textures[index] = resolved(getTextureByName(textureName));
+		}
+		return textures[index] == MISSING ? null : textures[index];
+	}
+
+	/* Draw TEXTURE on G2D, FACTOR times its size, with its top left corner at (X, Y),
+	   mirrored if FLIPPED. It is pre-scaled to the scale of G2D, so that drawing it is
+	   an unscaled blit at whole device pixels; G2D must not rotate. */
+	public static void draw(Graphics2D g2d, BufferedImage texture, double x, double y, double factor, boolean flipped) {
+		AffineTransform trans = g2d.getTransform();
+		TextureAtlas.Region region;
+		synchronized (atlases) {
+			TextureAtlas atlas = atlases.get(trans.getScaleX());
+			if (atlas == null) {
+				atlas = new TextureAtlas(trans.getScaleX(), g2d.getDeviceConfiguration());
+				atlases.put(trans.getScaleX(), atlas);
+			}
+			region = atlas.getRegion(texture, factor);
+		}
+
+		Point2D point = trans.transform(new Point2D.Double(x, y), null);
+		int left = (int)Math.round(point.getX()), top = (int)Math.round(point.getY());
+		int right = left + region.width, bottom = top + region.height;
+		g2d.setTransform(new AffineTransform());
+		if (flipped)
+			g2d.drawImage(region.page, right, top, left, bottom, 
+				region.x, region.y, region.x + region.width, region.y + region.height, null);
+		else
+			g2d.drawImage(region.page, left, top, right, bottom, 
+				region.x, region.y, region.x + region.width, region.y + region.height, null);
+		g2d.setTransform(trans);
+	}
 
-		return texturePool.get(variationDesc);
+	public static void draw(Graphics2D g2d, BufferedImage texture, double x, double y) {
+		draw(g2d, texture, x, y, 1, false);
 	}
-}
\ No newline at end of file
+}
@@ -0,0 +1,111 @@
+package polytopia.graphics;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/** Textures pre-scaled for one scale of the world on the device, e.g. one camera
+	zoom level, packed row by row into a few PAGE x PAGE images compatible with the
+	device. A texture is scaled and packed the first time it is drawn at that scale,
+	after which drawing it is an unscaled blit of its region of a page. */
+class TextureAtlas {
+
+	static final int PAGE = 1024;
+	/* Transparent gap between regions. */
+	private static final int PADDING = 1;
+
+	/* Where a scaled texture lies in the atlas. */
+	static class Region {
+		final BufferedImage page;
+		final int x, y, width, height;
+
+		Region(BufferedImage page, int x, int y, int width, int height) {
+			this.page = page;
+			this.x = x;
+			this.y = y;
+			this.width = width;
+			this.height = height;
+		}
+	}
+
+	/* A texture, by identity, and the factor it is drawn at on top of the scale. */
+	private static class Key {
+		final BufferedImage texture;
+		final double factor;
+
+		Key(BufferedImage texture, double factor) {
+			this.texture = texture;
+			this.factor = factor;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			return o instanceof Key && ((Key) o).texture == texture && ((Key) o).factor == factor;
+		}
+
+		@Override
+		public int hashCode() {
+			return System.identityHashCode(texture) * 31 + Double.hashCode(factor);
+		}
+	}
+
+	private final double scale;
+	private final GraphicsConfiguration config;
+	private HashMap<Key, Region> regions = new HashMap<>();
+	private ArrayList<BufferedImage> pages = new ArrayList<>();
+	/* The row being filled in the last page: its top, height so far, and first free column. */
+	private int rowY = 0, rowHeight = 0, rowX = 0;
+
+	TextureAtlas(double scale, GraphicsConfiguration config) {
+		this.scale = scale;
+		this.config = config;
+	}
+
+	Region getRegion(BufferedImage texture, double factor) {
+		Key key = new Key(texture, factor);
+		Region region = regions.get(key);
+		if (region == null) {
+			region = pack(texture, scale * factor);
+			regions.put(key, region);
+		}
+		return region;
+	}
+
+	/* Scale TEXTURE by SCALE into a free region. Like drawing it scaled, the
+	   nearest pixels are picked, so that tiles keep their hard edges. Sizes are
+	   rounded up, since blits are at whole pixels: neighbouring tiles may overlap
+	   by a pixel, rather than leave a gap. */
+	private Region pack(BufferedImage texture, double scale) {
+		int width = Integer.max(1, (int)Math.ceil(texture.getWidth() * scale - 1e-9));
+		int height = Integer.max(1, (int)Math.ceil(texture.getHeight() * scale - 1e-9));
+		BufferedImage page;
+		int x, y;
+		if (width > PAGE || height > PAGE) {
+			// Too large to share a page
+			page = config.createCompatibleImage(width, height, Transparency.TRANSLUCENT);
+			x = y = 0;
+		}
+		else {
+			if (rowX + width > PAGE) {
+				rowY += rowHeight + PADDING;
+				rowX = rowHeight = 0;
+			}
+			if (pages.isEmpty() || rowY + height > PAGE) {
+				pages.add(config.createCompatibleImage(PAGE, PAGE, Transparency.TRANSLUCENT));
+				rowX = rowY = rowHeight = 0;
+			}
+			page = pages.get(pages.size() - 1);
+			x = rowX;
+			y = rowY;
+			rowX += width + PADDING;
+			rowHeight = Integer.max(rowHeight, height);
+		}
+
+		Graphics2D g2d = page.createGraphics();
+		g2d.setComposite(AlphaComposite.Src);
+		g2d.drawImage(texture, x, y, width, height, null);
+		g2d.dispose();
+		return new Region(page, x, y, width, height);
+	}
+}
@@ -13,6 +13,7 @@ import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
 import java.awt.RenderingHints;
 import java.awt.image.*;
+import java.io.IOException;
 import java.util.ArrayList;
 
 
@@ -53,7 +54,12 @@ public class CircleButton extends JButton{
 							return;
 					}
 					if (getText().equals("Exit Game")) {
-						System.exit(0);
+						// Save once the actions queued before are applied
+						Game.execute(()->{
+							try {Game.save(Game.saveFile);}
+							catch (IOException e) {e.printStackTrace();}
+							System.exit(0);
+						});
 					}
 					if (getText().equals("Tech Tree")) {
 						if (Game.getHumanPlayer() != Game.getCurrentPlayer())
@@ -71,12 +77,12 @@ public class CircleButton extends JButton{
 					if (action != null) {
 						if (!window.isInAction() && action.isPerformableTo(Game.getHumanPlayer())) {
 							window.setInAction(true);
-							new Thread(()->{
+							Game.execute(()->{
 								Render.setSelected(null);
 								window.cancelSelection();
-								action.apply(Game.getHumanPlayer());
-								window.setInAction(false);
-							}).start();
+								try {action.apply(Game.getHumanPlayer());}
+								finally {window.setInAction(false);}
+							});
 						}
 					}
 					
@@ -170,10 +176,9 @@ public class CircleButton extends JButton{
 			float diagonal =(float)(Math.sqrt(width*width + height*height));
 
 			float scale = 0.8f * getHeight() / diagonal;
-			AffineTransformOp op = new AffineTransformOp(new AffineTransform(scale, 0, 0, scale, 0, 0),null);
-			g2d.drawImage(texture, op, 
+			Texture.draw(g2d, texture, 
 						(int)(getWidth()/2-width*scale/2),
-						(int)(getHeight()/2-height*scale/2));
+						(int)(getHeight()/2-height*scale/2), scale, false);
 
 		}
 
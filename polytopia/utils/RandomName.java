@@ -1,9 +1,8 @@
 package polytopia.utils;
 
-import java.util.Random;
+import java.util.SplittableRandom;
 
 public class RandomName {
-	private static Random rnd;
 	private static String[] pool = {
 		"Truisea", "Chuby", "Shiychester", "Quving", "Tidence", "Meley", "Cane", "Pline", "Agosland", "Oniomore", 
 		"Slesby", "Oproxrora", "Ufoldale", "Wroccaster", "Phocridge", "Qrolis", "Xing", "Brinas", "Isontol", "Ialing", 
@@ -15,11 +14,8 @@ public class RandomName {
 		"Srichull", "Vluecaster", "Klefling", "Figate", "Zaemont", "Rosa", "Qoria", "Ogrok", "Athephis", "Oitdiff",
 	};
 
-	static {
-		rnd = new Random((int)System.currentTimeMillis());
-	}
-
-	public static String roll() {
+	/* A name drawn with RND, e.g. the randomness of the game the city is in. */
+	public static String roll(SplittableRandom rnd) {
 		return pool[rnd.nextInt(pool.length)];
 	}
 }
\ No newline at end of file
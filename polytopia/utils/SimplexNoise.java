@@ -4,8 +4,11 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Random;
+import java.util.stream.IntStream;
 
 
+/** 2D simplex noise over the permutation of one seed. Each instance has its own
+	permutation, so that any number of maps can be generated at once. */
 public class SimplexNoise {
 
 	/*
@@ -22,15 +25,15 @@ public class SimplexNoise {
 	251,34,242,193,238,210,144,12,191,179,162,241, 81,51,145,235,249,14,239,107,
 	49,192,214, 31,181,199,106,157,184, 84,204,176,115,121,50,45,127, 4,150,254,
 	138,236,205,93,222,114,67,29,24,72,243,141,128,195,78,66,215,61,156,180}; */
-	private static Grad grad3[] = {new Grad(1,1,0),new Grad(-1,1,0),new Grad(1,-1,0),new Grad(-1,-1,0),
+	private static final Grad grad3[] = {new Grad(1,1,0),new Grad(-1,1,0),new Grad(1,-1,0),new Grad(-1,-1,0),
                                 new Grad(1,0,1),new Grad(-1,0,1),new Grad(1,0,-1),new Grad(-1,0,-1),
                                 new Grad(0,1,1),new Grad(0,-1,1),new Grad(0,1,-1),new Grad(0,-1,-1)};
 
-	private static short perm[] = new short[512];
-	private static short permMod12[] = new short[512];
-	static {
-		seed(0);
-	}
+	private final short perm[] = new short[512];
+	private final short permMod12[] = new short[512];
+
+	/* Maps of fewer cells are filled on the calling thread. */
+	private static final int PARALLEL_AREA = 64 * 64;
 
 	private static final double F2 = 0.5*(Math.sqrt(3.0)-1.0);
 	private static final double G2 = (3.0-Math.sqrt(3.0))/6.0;
@@ -52,7 +55,7 @@ public class SimplexNoise {
 		return g.x*x + g.y*y + g.z*z + g.w*w; 
 	}
 
-	public static void seed(int seed) {
+	public SimplexNoise(int seed) {
 
 		ArrayList<Short> list = new ArrayList<Short>();
 		for (short i=0;i<256;i++)
@@ -66,8 +69,22 @@ public class SimplexNoise {
 		}
 	}
 
+	/* A HEIGHT x WIDTH map of the noise at (i/SCALE, j/SCALE), row by row;
+	   rows are filled in parallel on the common fork-join pool. */
+	public double[][] fill(int height, int width, double scale) {
+		double[][] map = new double[height][width];
+		IntStream rows = IntStream.range(0, height);
+		if (height * width >= PARALLEL_AREA)
+			rows = rows.parallel();
+		rows.forEach(i -> {
+			for (int j = 0; j < width; j++)
+				map[i][j] = noise(i / scale, j / scale);
+		});
+		return map;
+	}
+
 	/* 2D simplex noise */
-	public static double noise(double xin, double yin) {
+	public double noise(double xin, double yin) {
 		double n0, n1, n2; // Noise contributions from the three corners
 		// Skew the input space to determine which simplex cell we're in
 		double s = (xin+yin)*F2; // Hairy factor for 2D
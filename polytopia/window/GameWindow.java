@@ -13,6 +13,7 @@ import java.util.Collections;
 import java.util.Random;
 import java.util.Scanner;
 import java.util.InputMismatchException;
+import java.util.concurrent.CompletableFuture;
 
 import polytopia.gameplay.Action;
 import polytopia.graphics.Visualizable;
@@ -44,7 +45,8 @@ public class GameWindow {
 	private Unit selectedUnit = null;
 	private boolean preferUnit = true;
 	
-    private boolean inAction = false;
+    /* Set while an action of the human player is queued or applied on the game thread. */
+    private volatile boolean inAction = false;
 
     public boolean isInAction() {return inAction;}
     public void setInAction(boolean value) {inAction = value;}
@@ -131,9 +133,36 @@ public class GameWindow {
         this.labelStarsText.setText(String.format ("Stars (+%d)", Game.getHumanPlayer().getStarsPerTurn()));
         this.labelStarsNumber.setText(String.valueOf(Game.getHumanPlayer().getStars()));
         this.labelTurnNumber.setText(String.valueOf(Game.getTurn()));
-        this.canvas.repaint();
+        this.canvas.paintImmediately(0, 0, canvas.getWidth(), canvas.getHeight());
 	}
 
+    /* Frames per second the map is drawn at while anything on it moves, e.g. -Dpolytopia.fps=30. */
+    private static final int targetFPS = Integer.max(1, Integer.getInteger("polytopia.fps", 60));
+
+    /* Draw a frame whenever Render has one to show, at most targetFPS times a second,
+       and none while the game is idle. Frames are painted synchronously on the EDT,
+       through the BufferStrategy Swing paints the frame with, so they never queue up. */
+    private void renderLoop() {
+        long period = 1000000000L / targetFPS;
+        long next = System.nanoTime();
+        try {
+            while (true) {
+                Render.awaitFrame();
+                long now = System.nanoTime();
+                if (now < next)
+                    Thread.sleep((next - now) / 1000000, (int)((next - now) % 1000000));
+                next = Math.max(next, now) + period;
+                try {
+                    SwingUtilities.invokeAndWait(this::update);
+                }
+                catch (java.lang.reflect.InvocationTargetException e) {
+                    e.getCause().printStackTrace();
+                }
+            }
+        }
+        catch (InterruptedException e) {}
+    }
+
 	class GameCanvas extends JPanel {
 			public GameCanvas() {
 				/* Makeshift camera. */
@@ -153,7 +182,7 @@ public class GameWindow {
 						Render.clearDecorationMap();
                         Render.setSelected(null);
                         
-						if (!TileMap.isValid(Game.map.getGrid(), x, y)) {
+						if (!TileMap.isValid(Game.getMap().getGrid(), x, y)) {
 							System.out.printf ("(%d, %d) is not on map\n", x, y);
 
 							cancelSelection();
@@ -161,16 +190,16 @@ public class GameWindow {
 						else {
 							if (selectedUnit != null) {
 								boolean actionPerformed = false;
-								Tile tile = Game.map.getGrid()[y][x];
+								Tile tile = Game.getMap().getGrid()[y][x];
 
                                 Action unitAction = selectedUnit.pickAction(Game.getCurrentPlayer(), tile);
                                 if (unitAction != null && !inAction) {
                                     actionPerformed = true;
 					                inAction = true;
-                                    new Thread(()->{
-                                        unitAction.apply(Game.getCurrentPlayer());
-                                        inAction = false;
-                                    }).start();
+                                    Game.execute(()->{
+                                        try {unitAction.apply(Game.getCurrentPlayer());}
+                                        finally {inAction = false;}
+                                    });
                                 }			
 								if (actionPerformed) {
                                     cancelSelection();
@@ -178,7 +207,7 @@ public class GameWindow {
                                 }
 							}
 
-							Tile tile = Game.map.getGrid()[y][x];
+							Tile tile = Game.getMap().getGrid()[y][x];
 							selectedTile = tile;
 							
 							if (tile.getUnit() == null || !preferUnit) {
@@ -248,6 +277,11 @@ public class GameWindow {
 
 
 	public GameWindow() {
+		this(null);
+	}
+
+	/* Show the game saved in SAVE, or a new game if it is null or cannot be loaded. */
+	public GameWindow(File save) {
 		
 		class GameFrame extends JFrame {
 
@@ -274,12 +308,38 @@ public class GameWindow {
                 GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice().setFullScreenWindow(frame);
                 frame.setVisible(true);
 
-                ArrayList<String> draw = new ArrayList<>();
-                draw.add("Xinxi");draw.add("Imperius");draw.add("Bardur");draw.add("Oumaji");
-                Collections.shuffle(draw, new Random(System.currentTimeMillis()));
-                
-				Game.start(18, (int) (System.currentTimeMillis()), "RANDOM",
-							new String[]{draw.get(0), draw.get(1), draw.get(2)}, GameWindow.this);
+				CompletableFuture<Void> textures = null;
+				if (save != null) {
+					try {
+						Game.resume(save, GameWindow.this);
+						ArrayList<Faction> factions = new ArrayList<>();
+						for (Player player : Game.getPlayers())
+							factions.add(player.getFaction());
+						textures = Texture.loadFactions(factions, null);
+					} catch (IOException e) {
+						System.out.printf ("cannot load %s: %s\n", save.getPath(), e.getMessage());
+					}
+				}
+
+				if (textures == null) {
+					// Factions and map are derived from one seed, so that a game can be played again
+					long seed = Long.getLong("polytopia.seed", System.currentTimeMillis());
+					System.out.printf ("seed: %d\n", seed);
+					Random rnd = new Random(seed);
+					ArrayList<String> draw = new ArrayList<>();
+					draw.add("Xinxi");draw.add("Imperius");draw.add("Bardur");draw.add("Oumaji");
+					Collections.shuffle(draw, rnd);
+
+					// Decode the textures of the factions in play while the map is generated
+					ArrayList<Faction> factions = new ArrayList<>();
+					for (int i = 0; i < 3; i++)
+						factions.add(Faction.valueOf(draw.get(i)));
+					textures = Texture.loadFactions(factions, null);
+
+					Game.start(18, rnd.nextInt(), "RANDOM",
+								new String[]{draw.get(0), draw.get(1), draw.get(2)}, GameWindow.this);
+				}
+				textures.join();
 
 				synchronized (cond) {
 					loaded = true;
@@ -438,14 +498,14 @@ public class GameWindow {
 		}
 
 
-		int delay = 15; //milliseconds
-  		new Timer(delay, (ActionEvent evt) -> {
-			  this.update();
-		  }).start();
+		Thread renderLoop = new Thread(this::renderLoop, "render-loop");
+		renderLoop.setDaemon(true);
+		renderLoop.start();
         
 		
-		// This starts the game cycle
-		Game.getCurrentPlayer().play();
+		// This starts the game cycle. The current turn has started already:
+		// it is the first one, or the one the game was saved in.
+		Game.execute(() -> Game.getCurrentPlayer().resume());
         
 	}
 }
@@ -10,9 +10,11 @@ import java.awt.Toolkit;
 import javax.swing.JFrame;
 import javax.swing.JLabel;
 import javax.swing.SwingConstants;
+import javax.swing.SwingUtilities;
 
 import polytopia.window.MainPanel;
 import polytopia.gameplay.Game;
+import polytopia.graphics.Texture;
 
 public class LaunchWindow extends JFrame {
 
@@ -20,6 +22,8 @@ public class LaunchWindow extends JFrame {
 
     JLabel Title, SubTitle;
 
+    JLabel Loading;
+
     static OptionWindow optionWindow;
 
     public LaunchWindow() {
@@ -86,7 +90,10 @@ public class LaunchWindow extends JFrame {
                     }).start();
                     setVisible(false);
                 } else if (e.getSource().equals(LoadGame)) {
-                    // new LoadWindow();
+                    new Thread(()->{
+                        new GameWindow(Game.saveFile);
+                        Game.debugCommandLine();
+                    }).start();
                     setVisible(false);
                 } else if (e.getSource().equals(ExitGame)) {
                     dispose();
@@ -99,14 +106,30 @@ public class LaunchWindow extends JFrame {
         this.add(NewGame);
 
         LoadGame = new ButtonLabel("LOAD GAME", dx, dy + dh + dh / 8, dw, dh);
-        LoadGame.setBackground(Color.LIGHT_GRAY);
-        //LoadGame.addMouseListener(adapter);
+        if (Game.saveFile.exists() || Game.journalFile.exists())
+            LoadGame.addMouseListener(adapter);
+        else
+            LoadGame.setBackground(Color.LIGHT_GRAY);
         this.add(LoadGame);
 
         ExitGame = new ButtonLabel("EXIT GAME", dx, dy + 2 * (dh + dh / 8), dw, dh);
         ExitGame.addMouseListener(adapter);
         this.add(ExitGame);
 
+        Loading = new JLabel("", SwingConstants.CENTER);
+        Loading.setFont(new Font("Arial", Font.PLAIN, 18));
+        Loading.setForeground(Color.WHITE);
+        Loading.setBounds(3 * width / 8, dy + 3 * (dh + dh / 8), width / 4, dh / 2);
+        this.add(Loading);
+
+        // Decode the common textures while the menu is up
+        Texture.loadCommon((loaded, total) -> SwingUtilities.invokeLater(() -> {
+            if (loaded == total)
+                Loading.setText("");
+            else
+                Loading.setText(String.format("Loading textures... %d%%", 100 * loaded / total));
+        }));
+
         MainPanel panel = new MainPanel("./resources/window/main.png");
         this.add(panel);
 